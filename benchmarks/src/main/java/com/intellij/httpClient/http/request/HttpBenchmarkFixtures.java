@@ -0,0 +1,63 @@
+package com.intellij.httpClient.http.request;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 生成基准测试用的请求和环境数据
+ */
+public final class HttpBenchmarkFixtures {
+    private HttpBenchmarkFixtures() {
+    }
+
+    /**
+     * 生成一个JSON请求体, 包含指定数量的{{var}}引用, 每隔10个夹带一个动态变量
+     */
+    public static String requestBody(int variables) {
+        StringBuilder builder = new StringBuilder("{\n  \"items\": [\n");
+        for (int i = 0; i < variables; i++) {
+            builder.append("    {\"id\": ").append(i).append(", \"field").append(i).append("\": \"");
+            builder.append(i % 10 == 9 ? "{{$uuid}}" : "{{var" + (i % 200) + "}}");
+            builder.append("\", \"description\": \"lorem ipsum dolor sit amet consectetur\"}");
+            builder.append(i + 1 < variables ? ",\n" : "\n");
+        }
+        return builder.append("  ]\n}\n").toString();
+    }
+
+    /**
+     * 生成多个环境, 每个环境包含指定数量的变量, 环境名带模块前缀
+     */
+    public static Map<String, Map<String, String>> environments(int environments, int variables) {
+        Map<String, Map<String, String>> result = new LinkedHashMap<>();
+        for (int e = 0; e < environments; e++) {
+            Map<String, String> values = new HashMap<>();
+            for (int v = 0; v < variables; v++) {
+                values.put("var" + v, "value-" + e + "-" + v);
+            }
+            result.put("module" + (e % 8) + ":env" + e, values);
+        }
+        return result;
+    }
+
+    /**
+     * 按{{}}把文本拆分成模板, 与从PSI编译模板的结构相同
+     */
+    static HttpRequestTemplate compile(String text) {
+        HttpRequestTemplate.Builder builder = new HttpRequestTemplate.Builder();
+        int start = 0;
+        while (true) {
+            int open = text.indexOf("{{", start);
+            int close = open >= 0 ? text.indexOf("}}", open) : -1;
+            if (close < 0) {
+                builder.addLiteral(text.substring(start));
+                return builder.build();
+            }
+            builder.addLiteral(text.substring(start, open));
+            String name = text.substring(open + 2, close).trim();
+            boolean dynamic = name.startsWith("$");
+            builder.addVariable(dynamic, dynamic ? name.substring(1) : name, text.substring(open, close + 2));
+            start = close + 2;
+        }
+    }
+}
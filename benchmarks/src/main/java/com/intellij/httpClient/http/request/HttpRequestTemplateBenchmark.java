@@ -0,0 +1,79 @@
+package com.intellij.httpClient.http.request;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 变量替换: 预编译模板与每次重新拆分的对比. 变量按HttpRequestVariableSubstitutor的方式逐层查找临时变量、全局变量和环境变量
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpRequestTemplateBenchmark {
+    @Param({"10", "500", "5000"})
+    public int variables;
+
+    private String myBody;
+    private HttpRequestTemplate myTemplate;
+    private HttpRequestTemplate.Resolver myResolver;
+
+    @Setup
+    public void setUp() {
+        this.myBody = HttpBenchmarkFixtures.requestBody(this.variables);
+        this.myTemplate = HttpBenchmarkFixtures.compile(this.myBody);
+
+        // 临时变量很少, 全局变量若干, 大部分变量来自环境
+        Map<String, String> temporary = new HashMap<>();
+        temporary.put("var0", "temporary");
+        Map<String, String> global = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            global.put("var" + (i * 10 + 1), "global-" + i);
+        }
+        Map<String, String> environment = HttpBenchmarkFixtures.environments(40, 200).values().iterator().next();
+        String uuid = UUID.randomUUID().toString();
+
+        this.myResolver = (dynamic, name, text) -> {
+            if (dynamic) {
+                return uuid;
+            }
+            String value = temporary.get(name);
+            if (value == null) {
+                value = global.get(name);
+            }
+            if (value == null) {
+                value = environment.get(name);
+            }
+            return value != null ? value : text;
+        };
+    }
+
+    @Benchmark
+    public String renderCompiledTemplate() {
+        return this.myTemplate.render(this.myResolver);
+    }
+
+    /**
+     * 每次都重新拆分文本, 相当于缓存模板之前每次遍历PSI子元素
+     */
+    @Benchmark
+    public String compileAndRender() {
+        return HttpBenchmarkFixtures.compile(this.myBody).render(this.myResolver);
+    }
+}
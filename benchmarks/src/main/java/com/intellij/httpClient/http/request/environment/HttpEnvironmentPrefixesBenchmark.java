@@ -0,0 +1,72 @@
+package com.intellij.httpClient.http.request.environment;
+
+import com.intellij.httpClient.http.request.HttpBenchmarkFixtures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * HttpRequestIndex.getAllEnvironments中按文件所在目录查找环境: 原来每次过滤所有环境名与快照中前缀分组后查找的对比,
+ * 以及快照重建时分组的开销. 索引查询和快照的CachedValue依赖IDE平台, 不在这里
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpEnvironmentPrefixesBenchmark {
+    private static final String BASE_PATH = "/home/user/project";
+
+    @Param({"16", "400", "4000"})
+    public int environments;
+
+    private Collection<String> myEnvironments;
+    private Map<String, List<String>> myEnvironmentsByPrefix;
+    private String myFilePath;
+
+    @Setup
+    public void setUp() {
+        this.myEnvironments = Collections.unmodifiableList(new ArrayList<>(HttpBenchmarkFixtures.environments(this.environments, 0).keySet()));
+        this.myEnvironmentsByPrefix = HttpEnvironmentPrefixes.groupByPrefix(this.myEnvironments);
+        this.myFilePath = BASE_PATH + "/module3/requests/orders.http";
+    }
+
+    @Benchmark
+    public Collection<String> lookupByPrefix() {
+        String prefix = HttpEnvironmentPrefixes.getModuleDirectory(BASE_PATH, this.myFilePath);
+        return prefix != null ? this.myEnvironmentsByPrefix.getOrDefault(prefix, Collections.emptyList()) : this.myEnvironments;
+    }
+
+    /**
+     * 原来的实现: 每次都用startsWith过滤所有环境名
+     */
+    @Benchmark
+    public Collection<String> filterAll() {
+        String uri = this.myFilePath.replace(BASE_PATH + "/", "");
+        String prefix = uri.substring(0, uri.indexOf("/"));
+        return this.myEnvironments.stream().filter(env -> env.startsWith(prefix + ":")).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Map<String, List<String>> groupByPrefix() {
+        return HttpEnvironmentPrefixes.groupByPrefix(this.myEnvironments);
+    }
+}
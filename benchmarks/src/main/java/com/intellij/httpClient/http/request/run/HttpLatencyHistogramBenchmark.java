@@ -0,0 +1,50 @@
+package com.intellij.httpClient.http.request.run;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 压测模式下记录耗时的开销, 记录过程不应该分配内存
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpLatencyHistogramBenchmark {
+    private final long[] myLatencies = new long[4096];
+    private HttpLatencyHistogram myHistogram;
+    private int myIndex;
+
+    @Setup
+    public void setUp() {
+        this.myHistogram = new HttpLatencyHistogram();
+        for (int i = 0; i < this.myLatencies.length; i++) {
+            // 1ms到2s之间
+            this.myLatencies[i] = ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(2));
+            this.myHistogram.recordNanos(this.myLatencies[i]);
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        this.myHistogram.recordNanos(this.myLatencies[this.myIndex++ & (this.myLatencies.length - 1)]);
+    }
+
+    @Benchmark
+    public long percentile() {
+        return this.myHistogram.getValueAtPercentile(99);
+    }
+}
@@ -0,0 +1,60 @@
+package com.intellij.httpClient.http.request.run;
+
+import com.intellij.httpClient.http.request.HttpRequestSignature;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 内置签名: 不同算法和参数个数下的吞吐量
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpRequestSignerBenchmark {
+    @Param({"HmacSHA256", "MD5"})
+    public String algorithm;
+
+    @Param({"5", "50"})
+    public int parameters;
+
+    private HttpRequestSigner mySigner;
+    private String myUrl;
+
+    @Setup
+    public void setUp() throws Exception {
+        Map<String, String> config = new HashMap<>();
+        config.put(HttpRequestSigner.ALGORITHM, this.algorithm);
+        config.put(HttpRequestSigner.SECRET, "0123456789abcdef0123456789abcdef");
+        this.mySigner = HttpRequestSigner.create(config::get);
+
+        // 参数按倒序生成, 保证需要排序
+        StringBuilder url = new StringBuilder("https://gateway.example.com/api/v1/orders?");
+        for (int i = this.parameters - 1; i >= 0; i--) {
+            url.append("param").append(i).append('=').append("value%20").append(i).append('&');
+        }
+        url.append("timestamp={{$signatureTimestamp}}&nonce={{$signatureNonce}}&sign={{$signature}}");
+        this.myUrl = url.toString();
+    }
+
+    @Benchmark
+    public HttpRequestSignature sign() throws Exception {
+        return this.mySigner.sign(this.myUrl);
+    }
+}
@@ -0,0 +1,95 @@
+package com.intellij.httpClient.http.request.run;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.nashorn.api.scripting.NashornScriptEngineFactory;
+
+/**
+ * 前置脚本执行: 每次解析源码执行(原来的方式)与编译一次后在HttpPreRequestScriptContext中执行的对比.
+ * HttpPreRequestScriptCache按VirtualFile缓存编译结果, 依赖IDE平台, 这里直接编译
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PreRequestScriptBenchmark {
+    @Param({"50", "300"})
+    public int helperFunctions;
+
+    private ScriptEngine myEngine;
+    private String mySource;
+    private CompiledScript myScript;
+    private HttpPreRequestScriptContext myContext;
+    private Map<String, String> myVariables;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.myEngine = new NashornScriptEngineFactory().getScriptEngine();
+        this.mySource = generateScript(this.helperFunctions);
+        this.myScript = ((Compilable) this.myEngine).compile(this.mySource);
+        this.myVariables = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            this.myVariables.put("param" + i, "value" + i);
+        }
+
+        this.myContext = HttpPreRequestScriptContext.create(this.myEngine);
+    }
+
+    @Benchmark
+    public Object evalSource() throws Exception {
+        Bindings bindings = this.myEngine.getBindings(ScriptContext.ENGINE_SCOPE);
+        bindings.put("variables", this.myVariables);
+        return this.myEngine.eval(this.mySource);
+    }
+
+    @Benchmark
+    public Object evalCompiled() throws Exception {
+        this.myContext.setBinding("variables", this.myVariables);
+        this.myContext.eval(this.myScript);
+        return this.myVariables.get("sign");
+    }
+
+    /**
+     * 生成类似签名脚本的代码: 若干辅助函数, 最后对排序后的参数计算摘要并写回变量
+     */
+    private static String generateScript(int helperFunctions) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("function rotl(x, n) { return (x << n) | (x >>> (32 - n)); }\n");
+        builder.append("function toHex(x) { var s = ''; for (var i = 7; i >= 0; i--) { s += ((x >>> (i * 4)) & 0xF).toString(16); } return s; }\n");
+        builder.append("function hash(text) { var h = 0x811c9dc5; for (var i = 0; i < text.length; i++) { h ^= text.charCodeAt(i); h = rotl(h, 5) + (h >>> 2); h |= 0; } return toHex(h); }\n");
+        for (int i = 0; i < helperFunctions; i++) {
+            builder.append("function helper").append(i).append("(value) {\n")
+                    .append("    var parts = String(value).split('');\n")
+                    .append("    for (var i = 0; i < parts.length; i++) { parts[i] = String.fromCharCode(parts[i].charCodeAt(0) ^ ").append(i % 7).append("); }\n")
+                    .append("    return parts.join('');\n")
+                    .append("}\n");
+        }
+        builder.append("var keys = [];\n");
+        builder.append("for each (var key in variables.keySet()) { keys.push(key); }\n");
+        builder.append("keys.sort();\n");
+        builder.append("var canonical = keys.map(function (k) { return k + '=' + variables.get(k); }).join('&');\n");
+        builder.append("canonical += '&timestamp=' + Date.now() + '&nonce=' + Math.floor(Math.random() * 1e9);\n");
+        builder.append("variables.put('sign', hash(helper0(canonical)));\n");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.intellij.httpClient.http.request.run;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpLatencyHistogramTest {
+    @Test
+    void smallValuesHaveTheirOwnBucket() {
+        for (long micros = 0; micros < 32; micros++) {
+            int index = HttpLatencyHistogram.bucketIndex(micros);
+            assertEquals(micros, index);
+            assertEquals(micros, HttpLatencyHistogram.bucketUpperBound(index));
+        }
+    }
+
+    @Test
+    void bucketBoundaries() {
+        assertEquals(32, HttpLatencyHistogram.bucketIndex(32));
+        assertEquals(63, HttpLatencyHistogram.bucketIndex(63));
+        // 64以上每个桶包含两个值
+        assertEquals(64, HttpLatencyHistogram.bucketIndex(64));
+        assertEquals(64, HttpLatencyHistogram.bucketIndex(65));
+        assertEquals(65, HttpLatencyHistogram.bucketIndex(66));
+        assertEquals(65, HttpLatencyHistogram.bucketUpperBound(64));
+    }
+
+    @Test
+    void upperBoundContainsValueWithinRelativeError() {
+        long previousIndex = -1;
+        for (long micros = 0; micros < 10_000_000L; micros = micros * 3 / 2 + 1) {
+            int index = HttpLatencyHistogram.bucketIndex(micros);
+            long upper = HttpLatencyHistogram.bucketUpperBound(index);
+            assertTrue(index >= previousIndex, "bucket index must not decrease at " + micros);
+            assertTrue(upper >= micros, "upper bound " + upper + " below " + micros);
+            assertTrue(upper - micros <= micros / 32, "upper bound " + upper + " too far from " + micros);
+            previousIndex = index;
+        }
+    }
+
+    @Test
+    void largestValueHasABucket() {
+        int index = HttpLatencyHistogram.bucketIndex(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, HttpLatencyHistogram.bucketUpperBound(index));
+    }
+
+    @Test
+    void emptyHistogram() {
+        HttpLatencyHistogram histogram = new HttpLatencyHistogram();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void percentiles() {
+        HttpLatencyHistogram histogram = new HttpLatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(100_000, histogram.getMaxMicros());
+        assertWithinRelativeError(50_000, histogram.getValueAtPercentile(50));
+        assertWithinRelativeError(90_000, histogram.getValueAtPercentile(90));
+        assertWithinRelativeError(99_000, histogram.getValueAtPercentile(99));
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+        assertWithinRelativeError(1_000, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    void percentileNeverExceedsMax() {
+        HttpLatencyHistogram histogram = new HttpLatencyHistogram();
+        histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(1_000_001));
+        assertEquals(1_000_001, histogram.getValueAtPercentile(50));
+        assertEquals(1_000_001, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void negativeDurationsAreRecordedAsZero() {
+        HttpLatencyHistogram histogram = new HttpLatencyHistogram();
+        histogram.recordNanos(-5);
+        assertEquals(1, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(100));
+    }
+
+    private static void assertWithinRelativeError(long expected, long actual) {
+        assertTrue(actual >= expected && actual - expected <= expected / 32, "expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,170 @@
+package com.intellij.httpClient.http.request;
+
+import com.intellij.httpClient.http.request.environment.HttpClientSelectedEnvironments;
+import com.intellij.httpClient.http.request.environment.HttpRequestEnvironment;
+import com.intellij.httpClient.http.request.environment.HttpRequestIndex;
+import com.intellij.httpClient.http.request.run.HttpRequestValidationException;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.UserDataHolderEx;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.FilenameIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.ParameterizedCachedValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 解析后的环境按选中的环境名和环境文件集合缓存, 同一搜索范围内的所有.http文件共享一份解析结果.
+ * 环境文件集合在增删、移动、重命名文件或工程结构变化后重新查找; 解析结果在环境文件内容(包括编辑器中未保存的修改)变化后失效.
+ * 缓存的环境由所有调用方共享, 不能修改, 前置脚本修改的是每次运行单独的HttpRequestScriptEnvironment
+ */
+final class HttpRequestEnvironmentCache {
+    private static final String[] ENVIRONMENT_FILE_NAMES = {
+            "http-client.env.json", "http-client.private.env.json", "rest-client.env.json", "rest-client.private.env.json"
+    };
+    private static final Key<HttpRequestEnvironmentCache> INSTANCE_KEY = Key.create("HttpRequestEnvironmentCache");
+
+    private final Project myProject;
+    // 搜索范围 -> 范围内的环境文件
+    private final CachedValue<Map<GlobalSearchScope, List<VirtualFile>>> myEnvironmentFiles;
+    // 搜索范围 -> 上次查找到的环境文件, 用来判断环境文件集合是否真的变化
+    private final Map<GlobalSearchScope, List<VirtualFile>> myLastEnvironmentFiles = new ConcurrentHashMap<>();
+    private final Map<CacheKey, Entry> myEntries = new ConcurrentHashMap<>();
+
+    private HttpRequestEnvironmentCache(@NotNull Project project) {
+        this.myProject = project;
+        this.myEnvironmentFiles = CachedValuesManager.getManager(project).createCachedValue(() -> CachedValueProvider.Result.create(
+                new ConcurrentHashMap<>(), VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS, ProjectRootModificationTracker.getInstance(project)), false);
+    }
+
+    static @NotNull HttpRequestEnvironmentCache getInstance(@NotNull Project project) {
+        HttpRequestEnvironmentCache cache = project.getUserData(INSTANCE_KEY);
+        if (cache == null) {
+            // 并发创建时只保留先放入的实例
+            cache = ((UserDataHolderEx) project).putUserDataIfAbsent(INSTANCE_KEY, new HttpRequestEnvironmentCache(project));
+        }
+        return cache;
+    }
+
+    @Nullable HttpRequestEnvironment getDefault(@Nullable PsiFile contextFile) throws HttpRequestValidationException {
+        String selected = HttpClientSelectedEnvironments.getInstance(this.myProject).getSelectedEnvironment(contextFile);
+        GlobalSearchScope scope = HttpRequestIndex.getSearchScope(this.myProject, contextFile);
+        List<VirtualFile> files = this.getEnvironmentFiles(scope);
+        Entry entry = this.myEntries.computeIfAbsent(new CacheKey(selected, files), key -> new Entry(key.myFiles));
+
+        Object result = entry.myValue.getValue(contextFile);
+        if (result instanceof HttpRequestValidationException) {
+            throw (HttpRequestValidationException) result;
+        }
+        return (HttpRequestEnvironment) result;
+    }
+
+    private @NotNull List<VirtualFile> getEnvironmentFiles(@NotNull GlobalSearchScope scope) {
+        Map<GlobalSearchScope, List<VirtualFile>> filesByScope = this.myEnvironmentFiles.getValue();
+        List<VirtualFile> files = filesByScope.get(scope);
+        if (files != null) {
+            return files;
+        }
+
+        files = this.findEnvironmentFiles(scope);
+        List<VirtualFile> existing = filesByScope.putIfAbsent(scope, files);
+        if (existing != null) {
+            return existing;
+        }
+        List<VirtualFile> previous = this.myLastEnvironmentFiles.put(scope, files);
+        if (previous != null && !previous.equals(files) && !this.myLastEnvironmentFiles.containsValue(previous)) {
+            // 环境文件集合变化后, 以旧集合为键的解析结果不会再用到
+            this.myEntries.keySet().removeIf(key -> key.myFiles.equals(previous));
+        }
+        return files;
+    }
+
+    private @NotNull List<VirtualFile> findEnvironmentFiles(@NotNull GlobalSearchScope scope) {
+        List<VirtualFile> files = new ArrayList<>();
+        for (String name : ENVIRONMENT_FILE_NAMES) {
+            files.addAll(FilenameIndex.getVirtualFilesByName(name, scope));
+        }
+        return Collections.unmodifiableList(files);
+    }
+
+    private final class Entry {
+        // 参数为上下文文件, 同一个键的解析结果和上下文文件无关
+        private final ParameterizedCachedValue<Object, PsiFile> myValue;
+
+        private Entry(@NotNull List<VirtualFile> files) {
+            Project project = HttpRequestEnvironmentCache.this.myProject;
+            this.myValue = CachedValuesManager.getManager(project).createParameterizedCachedValue(contextFile -> {
+                Object result;
+                try {
+                    result = HttpRequestEnvironment.getDefault(project, contextFile);
+                } catch (HttpRequestValidationException e) {
+                    result = e;
+                }
+                return CachedValueProvider.Result.create(result, getDependencies(files));
+            }, false);
+        }
+
+        /**
+         * 环境文件的文档和文件本身: 编辑器中未保存的修改和磁盘上的修改都会让解析结果失效
+         */
+        private @NotNull Object[] getDependencies(@NotNull List<VirtualFile> files) {
+            List<Object> dependencies = new ArrayList<>();
+            for (VirtualFile file : files) {
+                dependencies.add(file);
+                Document document = FileDocumentManager.getInstance().getDocument(file);
+                if (document != null) {
+                    dependencies.add(document);
+                }
+            }
+            if (dependencies.isEmpty()) {
+                dependencies.add(ModificationTracker.NEVER_CHANGED);
+            }
+            return dependencies.toArray();
+        }
+    }
+
+    private static final class CacheKey {
+        private final String myEnvironment;
+        private final List<VirtualFile> myFiles;
+
+        private CacheKey(@Nullable String environment, @NotNull List<VirtualFile> files) {
+            this.myEnvironment = environment;
+            this.myFiles = files;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey key = (CacheKey) o;
+            return Objects.equals(this.myEnvironment, key.myEnvironment) && this.myFiles.equals(key.myFiles);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.myEnvironment, this.myFiles);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.intellij.httpClient.http.request;
+
+import com.intellij.httpClient.http.request.environment.HttpRequestEnvironment;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 前置脚本中的environment变量: 先取脚本设置的值, 再取环境文件中的值.
+ * 设置的值只属于本次运行, 环境文件解析出的环境在多次运行和编辑器之间共享, 不会被修改
+ */
+public final class HttpRequestScriptEnvironment {
+    private final HttpRequestEnvironment myEnvironment;
+    private final Map<String, String> myValues = new ConcurrentHashMap<>();
+
+    HttpRequestScriptEnvironment(@NotNull HttpRequestEnvironment environment) {
+        this.myEnvironment = environment;
+    }
+
+    public @Nullable String getVariableValue(@NotNull String name) {
+        String value = this.myValues.get(name);
+        return value != null ? value : this.myEnvironment.getVariableValue(name);
+    }
+
+    public @Nullable String get(@NotNull String name) {
+        return this.getVariableValue(name);
+    }
+
+    /**
+     * 设置本次运行中的环境变量, 值为null时恢复为环境文件中的值
+     */
+    public void set(@NotNull String name, @Nullable Object value) {
+        if (value == null) {
+            this.myValues.remove(name);
+        } else {
+            this.myValues.put(name, String.valueOf(value));
+        }
+    }
+
+    public void clear(@NotNull String name) {
+        this.myValues.remove(name);
+    }
+}
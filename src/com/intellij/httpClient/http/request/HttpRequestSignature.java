@@ -0,0 +1,40 @@
+package com.intellij.httpClient.http.request;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 当前请求的签名结果, 通过动态变量{{$signature}}、{{$signatureTimestamp}}、{{$signatureNonce}}引用
+ */
+public final class HttpRequestSignature {
+    public static final String SIGNATURE = "signature";
+    public static final String TIMESTAMP = "signatureTimestamp";
+    public static final String NONCE = "signatureNonce";
+
+    private final String mySignature;
+    private final String myTimestamp;
+    private final String myNonce;
+
+    public HttpRequestSignature(@NotNull String signature, @NotNull String timestamp, @NotNull String nonce) {
+        this.mySignature = signature;
+        this.myTimestamp = timestamp;
+        this.myNonce = nonce;
+    }
+
+    public static boolean isSignatureVariable(@Nullable String name) {
+        return SIGNATURE.equals(name) || TIMESTAMP.equals(name) || NONCE.equals(name);
+    }
+
+    public @Nullable String getValue(@NotNull String name) {
+        switch (name) {
+            case SIGNATURE:
+                return this.mySignature;
+            case TIMESTAMP:
+                return this.myTimestamp;
+            case NONCE:
+                return this.myNonce;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.intellij.httpClient.http.request;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 预编译的请求片段: 固定文本和变量占位交替排列, 重复执行时只需要解析变量和拷贝文本
+ */
+final class HttpRequestTemplate {
+    private static final int EXPECTED_VALUE_LENGTH = 16;
+
+    private final String[] myLiterals;
+    private final String[] myNames;
+    private final String[] myTexts;
+    private final boolean[] myDynamic;
+    private final int myLiteralLength;
+
+    private HttpRequestTemplate(@NotNull String[] literals, @NotNull String[] names, @NotNull String[] texts, @NotNull boolean[] dynamic, int literalLength) {
+        this.myLiterals = literals;
+        this.myNames = names;
+        this.myTexts = texts;
+        this.myDynamic = dynamic;
+        this.myLiteralLength = literalLength;
+    }
+
+    @NotNull String render(@NotNull Resolver resolver) {
+        StringBuilder builder = new StringBuilder(this.myLiteralLength + this.myNames.length * EXPECTED_VALUE_LENGTH);
+        builder.append(this.myLiterals[0]);
+        for (int i = 0; i < this.myNames.length; i++) {
+            builder.append(resolver.resolve(this.myDynamic[i], this.myNames[i], this.myTexts[i]));
+            builder.append(this.myLiterals[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    interface Resolver {
+        /**
+         * @param text 变量在请求中的原文, 变量没有值时原样输出
+         */
+        @NotNull String resolve(boolean dynamic, @Nullable String name, @NotNull String text);
+    }
+
+    static final class Builder {
+        private final List<String> myLiterals = new ArrayList<>();
+        private final List<String> myNames = new ArrayList<>();
+        private final List<String> myTexts = new ArrayList<>();
+        private final List<Boolean> myDynamic = new ArrayList<>();
+        private final StringBuilder myLiteral = new StringBuilder();
+        private int myLiteralLength;
+
+        @NotNull Builder addLiteral(@NotNull String text) {
+            this.myLiteral.append(text);
+            return this;
+        }
+
+        @NotNull Builder addVariable(boolean dynamic, @Nullable String name, @NotNull String text) {
+            this.flushLiteral();
+            this.myNames.add(name);
+            this.myTexts.add(text);
+            this.myDynamic.add(dynamic);
+            return this;
+        }
+
+        @NotNull HttpRequestTemplate build() {
+            this.flushLiteral();
+            boolean[] dynamic = new boolean[this.myDynamic.size()];
+            for (int i = 0; i < dynamic.length; i++) {
+                dynamic[i] = this.myDynamic.get(i);
+            }
+            return new HttpRequestTemplate(this.myLiterals.toArray(new String[0]), this.myNames.toArray(new String[0]), this.myTexts.toArray(new String[0]), dynamic, this.myLiteralLength);
+        }
+
+        private void flushLiteral() {
+            // 相邻的文本合并成一段, 保证文本段比变量多一个
+            this.myLiterals.add(this.myLiteral.toString());
+            this.myLiteralLength += this.myLiteral.length();
+            this.myLiteral.setLength(0);
+        }
+    }
+}
@@ -16,6 +16,13 @@ import com.intellij.openapi.util.Conditions;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -28,6 +35,12 @@ public final class HttpRequestVariableSubstitutor {
 
     // 临时变量
     private final HttpRequestGlobalContext.HttpClientVariables variables = new HttpRequestGlobalContext.HttpClientVariables();
+    // 前置脚本使用的环境, 第一次执行前置脚本时创建, 脚本设置的环境变量只在这个替换器中生效
+    private volatile HttpRequestScriptEnvironment myScriptEnvironment;
+    // 当前请求的内置签名结果
+    private volatile HttpRequestSignature mySignature;
+    // 签名时固定下来的动态变量的值, 生成请求信息时使用相同的值
+    private volatile Map<PsiElement, String> myPinnedValues = Collections.emptyMap();
 
     private HttpRequestVariableSubstitutor(@NotNull HttpRequestEnvironment environment, @NotNull HttpRequestGlobalContext context) {
 
@@ -42,7 +55,7 @@ public final class HttpRequestVariableSubstitutor {
 
     public static @NotNull HttpRequestVariableSubstitutor getDefault(@NotNull Project project, @Nullable PsiFile contextFile) {
         try {
-            HttpRequestEnvironment env = HttpRequestEnvironment.getDefault(project, contextFile);
+            HttpRequestEnvironment env = HttpRequestEnvironmentCache.getInstance(project).getDefault(contextFile);
             if (env != null) {
                 return create(project, env);
             }
@@ -72,6 +85,12 @@ public final class HttpRequestVariableSubstitutor {
             return this.getVariableValue((HttpVariableBase)element);
         } else {
             if (element instanceof HttpRequestCompositeElement) {
+                // 默认过滤条件的结果只和元素内容有关, 使用预编译的模板. 固定了动态变量时需要按变量元素取值, 不使用模板
+                if (filter == Conditions.alwaysTrue() && element.getContainingFile() != null && this.myPinnedValues.isEmpty()) {
+                    Project project = element.getProject();
+                    return getTemplate(element).render((dynamic, name, text) -> dynamic ? this.getDynamicVariableValue(name, text, project) : this.getEnvironmentVariableValue(name, text));
+                }
+
                 StringBuilder builder = new StringBuilder();
 
                 for(PsiElement child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
@@ -89,8 +108,51 @@ public final class HttpRequestVariableSubstitutor {
         }
     }
 
+    /**
+     * 模板按元素缓存, 文件修改后失效
+     */
+    private static @NotNull HttpRequestTemplate getTemplate(@NotNull PsiElement element) {
+        return CachedValuesManager.getCachedValue(element, () -> {
+            HttpRequestTemplate.Builder builder = new HttpRequestTemplate.Builder();
+            for(PsiElement child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child instanceof HttpDynamicVariable || child instanceof HttpVariable) {
+                    HttpVariableBase variable = (HttpVariableBase)child;
+                    builder.addVariable(variable instanceof HttpDynamicVariable, variable.getName(), variable.getText());
+                } else if (child instanceof HttpVariableBase) {
+                    throw new IllegalArgumentException("Unknown subclass of HttpVariableBase");
+                } else {
+                    builder.addLiteral(child.getText());
+                }
+            }
+            return CachedValueProvider.Result.create(builder.build(), element.getContainingFile());
+        });
+    }
+
+    /**
+     * 解析元素并固定其中动态变量(如{{$uuid}}、{{$timestamp}})的值, 调用clearPinnedDynamicVariables之前,
+     * 再次解析这些变量元素都得到相同的值. 签名的内容因此就是实际发送的内容. 签名变量在签名完成后才有值, 不固定
+     */
+    public @NotNull String getValuePinningDynamicVariables(@NotNull PsiElement element) {
+        Map<PsiElement, String> pinned = new HashMap<>();
+        for (HttpDynamicVariable variable : PsiTreeUtil.findChildrenOfType(element, HttpDynamicVariable.class)) {
+            if (!HttpRequestSignature.isSignatureVariable(variable.getName())) {
+                pinned.put(variable, this.getDynamicVariableValue(variable.getName(), variable.getText(), variable.getProject()));
+            }
+        }
+        this.myPinnedValues = pinned;
+        return this.getValue(element);
+    }
+
+    public void clearPinnedDynamicVariables() {
+        this.myPinnedValues = Collections.emptyMap();
+    }
+
     private @NotNull String getVariableValue(@NotNull HttpVariableBase variable) {
         if (variable instanceof HttpDynamicVariable) {
+            String pinned = this.myPinnedValues.get(variable);
+            if (pinned != null) {
+                return pinned;
+            }
             return this.getDynamicVariableValue(variable.getName(), variable.getText(), variable.getProject());
         } else if (variable instanceof HttpVariable) {
             return this.getEnvironmentVariableValue(variable.getName(), variable.getText());
@@ -102,6 +164,14 @@ public final class HttpRequestVariableSubstitutor {
     @Contract("_, !null, _ -> !null")
     public @Nullable String getDynamicVariableValue(@Nullable String name, @Nullable String defaultValue, @NotNull Project project) {
         if (StringUtil.isNotEmpty(name)) {
+            HttpRequestSignature signature = this.mySignature;
+            if (signature != null) {
+                String value = signature.getValue(name);
+                if (value != null) {
+                    return value;
+                }
+            }
+
             if (HttpClientDynamicVariables.hasProjectAwareVariable(name)) {
                 return HttpClientDynamicVariables.get(name, project);
             }
@@ -129,7 +199,8 @@ public final class HttpRequestVariableSubstitutor {
                 return global;
             }
 
-            String envVariable = this.myEnvironment.getVariableValue(StringUtil.notNullize(name));
+            HttpRequestScriptEnvironment scriptEnvironment = this.myScriptEnvironment;
+            String envVariable = scriptEnvironment != null ? scriptEnvironment.getVariableValue(name) : this.myEnvironment.getVariableValue(StringUtil.notNullize(name));
             if (envVariable != null) {
                 return envVariable;
             }
@@ -151,10 +222,35 @@ public final class HttpRequestVariableSubstitutor {
         return this.myEnvironment;
     }
 
+    /**
+     * 交给前置脚本的环境. getEnvironment返回的环境在多次运行之间共享, 脚本不能直接修改它.
+     * 共享的空替换器不保存脚本设置的值, 每次返回新的对象
+     */
+    public @NotNull HttpRequestScriptEnvironment getScriptEnvironment() {
+        if (this == EMPTY) {
+            return new HttpRequestScriptEnvironment(this.myEnvironment);
+        }
+        HttpRequestScriptEnvironment scriptEnvironment = this.myScriptEnvironment;
+        if (scriptEnvironment == null) {
+            synchronized (this) {
+                scriptEnvironment = this.myScriptEnvironment;
+                if (scriptEnvironment == null) {
+                    scriptEnvironment = new HttpRequestScriptEnvironment(this.myEnvironment);
+                    this.myScriptEnvironment = scriptEnvironment;
+                }
+            }
+        }
+        return scriptEnvironment;
+    }
+
     public HttpRequestGlobalContext.HttpClientVariables getGlobal() {
         return myGlobalContext.getGlobal();
     }
 
+    public void setSignature(@Nullable HttpRequestSignature signature) {
+        this.mySignature = signature;
+    }
+
     public HttpRequestGlobalContext.HttpClientVariables getVariables() {
         return variables;
     }
@@ -0,0 +1,46 @@
+package com.intellij.httpClient.http.request.environment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 环境名以"目录名:"开头时属于工程中的这个一级目录. 只处理字符串, 不依赖IDE平台
+ */
+final class HttpEnvironmentPrefixes {
+    private HttpEnvironmentPrefixes() {
+    }
+
+    /**
+     * 按"前缀:"分组, 每个目录的环境只需一次查找. 没有前缀的环境不在结果中
+     */
+    static @NotNull Map<String, List<String>> groupByPrefix(@NotNull Collection<String> environments) {
+        Map<String, List<String>> environmentsByPrefix = new HashMap<>();
+        for (String env : environments) {
+            int index = env.indexOf(':');
+            if (index > 0) {
+                environmentsByPrefix.computeIfAbsent(env.substring(0, index), key -> new ArrayList<>()).add(env);
+            }
+        }
+        environmentsByPrefix.replaceAll((prefix, envs) -> Collections.unmodifiableList(envs));
+        return environmentsByPrefix;
+    }
+
+    /**
+     * 文件所在的工程一级目录, 文件不在工程中或者直接在工程根目录下时返回null
+     */
+    static @Nullable String getModuleDirectory(@Nullable String basePath, @Nullable String filePath) {
+        if (filePath == null || basePath == null || !filePath.startsWith(basePath + "/")) {
+            return null;
+        }
+        String relativePath = filePath.substring(basePath.length() + 1);
+        int index = relativePath.indexOf('/');
+        return index > 0 ? relativePath.substring(0, index) : null;
+    }
+}
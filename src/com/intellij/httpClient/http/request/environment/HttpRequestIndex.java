@@ -3,52 +3,52 @@ package com.intellij.httpClient.http.request.environment;
 import com.intellij.ide.scratch.ScratchUtil;
 import com.intellij.ide.scratch.ScratchesSearchScope;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.GlobalSearchScopesCore;
 import com.intellij.psi.search.ProjectScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiUtilCore;
 import com.intellij.util.indexing.FileBasedIndex;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public final class HttpRequestIndex {
+    private static final Key<CachedValue<Map<GlobalSearchScope, EnvironmentSnapshot>>> SNAPSHOTS_KEY = Key.create("HttpRequestIndex.snapshots");
+
     public HttpRequestIndex() {
     }
 
     public static @NotNull Collection<String> getAllEnvironments(@NotNull Project project, @Nullable PsiFile contextFile) {
         // 重写默认逻辑,只选择当前工程目录下的环境
-        if (contextFile.getVirtualFile().getPath().startsWith(project.getBasePath())) {
-            String uri = contextFile.getVirtualFile().getPath().replace(project.getBasePath() + "/", "");
-            String prefix = uri.substring(0, uri.indexOf("/"));
-            return getAllEnvironments(project, getSearchScope(project, contextFile))
-                    .stream()
-                    .filter(env -> env.startsWith(prefix + ":"))
-                    .collect(Collectors.toList());
+        EnvironmentSnapshot snapshot = getSnapshot(project, getSearchScope(project, contextFile));
+        VirtualFile file = PsiUtilCore.getVirtualFile(contextFile);
+        String prefix = HttpEnvironmentPrefixes.getModuleDirectory(project.getBasePath(), file != null ? file.getPath() : null);
+        if (prefix != null) {
+            return snapshot.myEnvironmentsByPrefix.getOrDefault(prefix, Collections.emptyList());
         }
-        return getAllEnvironments(project, getSearchScope(project, contextFile));
+        return snapshot.myEnvironments;
 
     }
 
     public static @NotNull Collection<String> getAllEnvironments(@NotNull Project project, @NotNull GlobalSearchScope scope) {
-
-        FileBasedIndex index = FileBasedIndex.getInstance();
-        Collection var10000 = (Collection)index.getAllKeys(HttpRequestEnvironmentIndex.INDEX_ID, project).stream().filter((env) -> {
-            return !HttpClientSelectedEnvironments.isSelectBeforeRun(env);
-        }).filter((env) -> {
-            return !index.getContainingFiles(HttpRequestEnvironmentIndex.INDEX_ID, env, scope).isEmpty();
-        }).collect(Collectors.toSet());
-        return var10000;
+        return getSnapshot(project, scope).myEnvironments;
     }
 
     public static Collection<VirtualFile> getEnvironmentFiles(@NotNull Project project, @NotNull String env, @Nullable PsiFile contextFile) {
@@ -58,37 +58,72 @@ public final class HttpRequestIndex {
     }
 
     public static @NotNull Collection<String> getAllVariables(@NotNull Project project, @Nullable PsiFile contextFile) {
-        GlobalSearchScope scope = getSearchScope(project, contextFile);
-        Collection<String> environments = getAllEnvironments(project, scope);
-        if (environments.isEmpty()) {
-            Set var10000 = Collections.emptySet();
+        return getSnapshot(project, getSearchScope(project, contextFile)).myAllVariables;
+    }
 
-            return var10000;
-        } else {
-            Set<String> variables = new HashSet();
-            Iterator var5 = environments.iterator();
+    public static @NotNull Stream<String> getAllVariables(@NotNull Project project, @NotNull String env, @Nullable PsiFile contextFile) {
+        Set<String> variables = getSnapshot(project, getSearchScope(project, contextFile)).myVariables.get(env);
+        if (variables != null) {
+            return variables.stream();
+        }
 
-            while(var5.hasNext()) {
-                String env = (String)var5.next();
-                List<Set<String>> varsInEnv = FileBasedIndex.getInstance().getValues(HttpRequestEnvironmentIndex.INDEX_ID, env, scope);
-                Iterator var8 = varsInEnv.iterator();
+        // 运行前选择环境等不在快照中的环境, 直接查索引
+        List<Set<String>> values = FileBasedIndex.getInstance().getValues(HttpRequestEnvironmentIndex.INDEX_ID, env, getSearchScope(project, contextFile));
+        return values.stream().flatMap(Collection::stream).distinct();
+    }
 
-                while(var8.hasNext()) {
-                    Set<String> vars = (Set)var8.next();
-                    variables.addAll(vars);
-                }
+    /**
+     * 环境及其变量的快照按搜索范围缓存, 环境索引或工程结构变化时失效
+     */
+    private static @NotNull EnvironmentSnapshot getSnapshot(@NotNull Project project, @NotNull GlobalSearchScope scope) {
+        Map<GlobalSearchScope, EnvironmentSnapshot> snapshots = CachedValuesManager.getManager(project).getCachedValue(project, SNAPSHOTS_KEY, () -> {
+            ModificationTracker indexTracker = () -> FileBasedIndex.getInstance().getIndexModificationStamp(HttpRequestEnvironmentIndex.INDEX_ID, project);
+            return CachedValueProvider.Result.create(new ConcurrentHashMap<>(), indexTracker, ProjectRootModificationTracker.getInstance(project));
+        }, false);
+        EnvironmentSnapshot snapshot = snapshots.get(scope);
+        if (snapshot == null) {
+            snapshot = EnvironmentSnapshot.create(project, scope);
+            EnvironmentSnapshot existing = snapshots.putIfAbsent(scope, snapshot);
+            if (existing != null) {
+                snapshot = existing;
             }
-
-            return variables;
         }
+        return snapshot;
     }
 
-    public static @NotNull Stream<String> getAllVariables(@NotNull Project project, @NotNull String env, @Nullable PsiFile contextFile) {
-
-        List<Set<String>> variables = FileBasedIndex.getInstance().getValues(HttpRequestEnvironmentIndex.INDEX_ID, env, getSearchScope(project, contextFile));
-        Stream var10000 = variables.stream().flatMap(Collection::stream).distinct();
+    private static final class EnvironmentSnapshot {
+        private final Collection<String> myEnvironments;
+        private final Map<String, List<String>> myEnvironmentsByPrefix;
+        private final Map<String, Set<String>> myVariables;
+        private final Collection<String> myAllVariables;
+
+        private EnvironmentSnapshot(@NotNull Collection<String> environments, @NotNull Map<String, List<String>> environmentsByPrefix, @NotNull Map<String, Set<String>> variables, @NotNull Collection<String> allVariables) {
+            this.myEnvironments = environments;
+            this.myEnvironmentsByPrefix = environmentsByPrefix;
+            this.myVariables = variables;
+            this.myAllVariables = allVariables;
+        }
 
-        return var10000;
+        private static @NotNull EnvironmentSnapshot create(@NotNull Project project, @NotNull GlobalSearchScope scope) {
+            FileBasedIndex index = FileBasedIndex.getInstance();
+            Map<String, Set<String>> variables = new HashMap<>();
+            Set<String> allVariables = new HashSet<>();
+            for (String env : index.getAllKeys(HttpRequestEnvironmentIndex.INDEX_ID, project)) {
+                if (HttpClientSelectedEnvironments.isSelectBeforeRun(env)) {
+                    continue;
+                }
+                // 范围内每个包含该环境的文件对应一个值, 为空说明范围内没有这个环境
+                List<Set<String>> values = index.getValues(HttpRequestEnvironmentIndex.INDEX_ID, env, scope);
+                if (!values.isEmpty()) {
+                    Set<String> envVariables = new HashSet<>();
+                    values.forEach(envVariables::addAll);
+                    variables.put(env, Collections.unmodifiableSet(envVariables));
+                    allVariables.addAll(envVariables);
+                }
+            }
+            Map<String, List<String>> environmentsByPrefix = HttpEnvironmentPrefixes.groupByPrefix(variables.keySet());
+            return new EnvironmentSnapshot(Collections.unmodifiableSet(variables.keySet()), environmentsByPrefix, variables, Collections.unmodifiableSet(allVariables));
+        }
     }
 
     public static @NotNull GlobalSearchScope getSearchScope(@NotNull Project project, @Nullable PsiFile contextFile) {
@@ -0,0 +1,68 @@
+package com.intellij.httpClient.http.request.run;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求耗时直方图. 按2的幂分段, 每段再等分成32个桶, 相对误差约3%,
+ * 记录时只修改一个计数, 不保存每次的耗时. 非线程安全, 由调用方保证在同一线程记录
+ */
+final class HttpLatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private final long[] myCounts = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT];
+    private long myTotalCount;
+    private long myMaxMicros;
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(0L, TimeUnit.NANOSECONDS.toMicros(nanos));
+        this.myCounts[bucketIndex(micros)]++;
+        this.myTotalCount++;
+        this.myMaxMicros = Math.max(this.myMaxMicros, micros);
+    }
+
+    long getTotalCount() {
+        return this.myTotalCount;
+    }
+
+    long getMaxMicros() {
+        return this.myMaxMicros;
+    }
+
+    /**
+     * @param percentile 0到100之间
+     * @return 对应分位的耗时上界(微秒), 没有记录时返回0
+     */
+    long getValueAtPercentile(double percentile) {
+        if (this.myTotalCount == 0) {
+            return 0L;
+        }
+        long target = Math.max(1L, (long) Math.ceil(this.myTotalCount * Math.min(percentile, 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < this.myCounts.length; i++) {
+            seen += this.myCounts[i];
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), this.myMaxMicros);
+            }
+        }
+        return this.myMaxMicros;
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lower = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,88 @@
+package com.intellij.httpClient.http.request.run;
+
+import com.intellij.execution.ui.ConsoleView;
+import com.intellij.execution.ui.ExecutionConsole;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 传给前置脚本的绑定对象的包装
+ */
+final class HttpPreRequestScriptBindings {
+    private static final Logger LOG = Logger.getInstance(HttpPreRequestScriptBindings.class);
+
+    private HttpPreRequestScriptBindings() {
+    }
+
+    /**
+     * 控制台创建之前执行的脚本使用的控制台: 先记下脚本的输出, 真正的控制台创建后按顺序输出, 之后的调用直接转发
+     */
+    static final class DeferredConsole {
+        private final List<Object[]> myCalls = new ArrayList<>();
+        private final ConsoleView myConsole;
+        private @Nullable ConsoleView myTarget;
+        private boolean myFlushed;
+
+        DeferredConsole() {
+            this.myConsole = (ConsoleView) Proxy.newProxyInstance(ConsoleView.class.getClassLoader(), new Class<?>[]{ConsoleView.class}, (proxy, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    return method.invoke(this, args);
+                }
+                ConsoleView target;
+                synchronized (this.myCalls) {
+                    target = this.myTarget;
+                    if (target == null) {
+                        if (!this.myFlushed && method.getReturnType() == void.class) {
+                            this.myCalls.add(new Object[]{method, args});
+                        }
+                        return getDefaultValue(method.getReturnType());
+                    }
+                }
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+
+        @NotNull ConsoleView getConsole() {
+            return this.myConsole;
+        }
+
+        void flushTo(@Nullable ExecutionConsole console) {
+            synchronized (this.myCalls) {
+                this.myFlushed = true;
+                if (!(console instanceof ConsoleView)) {
+                    this.myCalls.clear();
+                    return;
+                }
+                for (Object[] call : this.myCalls) {
+                    try {
+                        ((Method) call[0]).invoke(console, (Object[]) call[1]);
+                    } catch (ReflectiveOperationException e) {
+                        LOG.warn("Failed to replay pre-request script output", e);
+                    }
+                }
+                this.myCalls.clear();
+                this.myTarget = (ConsoleView) console;
+            }
+        }
+
+        private static @Nullable Object getDefaultValue(@NotNull Class<?> type) {
+            // ConsoleView中有返回值的方法只返回boolean、int或对象
+            if (type == boolean.class) {
+                return false;
+            }
+            return type == int.class ? 0 : null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.intellij.httpClient.http.request.run;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.nashorn.api.scripting.NashornScriptEngineFactory;
+
+/**
+ * 前置脚本编译缓存, 按脚本文件及其修改戳缓存编译结果, 文件修改或删除后失效
+ */
+final class HttpPreRequestScriptCache {
+    private static final Logger LOG = Logger.getInstance(HttpPreRequestScriptCache.class);
+    private static final HttpPreRequestScriptCache INSTANCE = new HttpPreRequestScriptCache();
+
+    private final Map<VirtualFile, Entry> myScripts = new ConcurrentHashMap<>();
+    private volatile ScriptEngine myEngine;
+
+    private HttpPreRequestScriptCache() {
+    }
+
+    static @NotNull HttpPreRequestScriptCache getInstance() {
+        return INSTANCE;
+    }
+
+    @NotNull CompiledScript getCompiledScript(@NotNull VirtualFile file) throws IOException, ScriptException {
+        long stamp = file.getModificationStamp();
+        Entry entry = this.myScripts.get(file);
+        if (entry != null && entry.stamp == stamp) {
+            return entry.script;
+        }
+
+        ScriptEngine engine = this.getEngine();
+        CompiledScript script;
+        // 编译时记录文件路径, 脚本异常堆栈中才能看到出错的文件
+        synchronized (engine) {
+            engine.put(ScriptEngine.FILENAME, file.getPath());
+            script = ((Compilable) engine).compile(VfsUtilCore.loadText(file));
+        }
+        this.myScripts.put(file, new Entry(stamp, script));
+        return script;
+    }
+
+    @NotNull ScriptEngine getEngine() {
+        ScriptEngine engine = this.myEngine;
+        if (engine == null) {
+            synchronized (this) {
+                engine = this.myEngine;
+                if (engine == null) {
+                    engine = new NashornScriptEngineFactory().getScriptEngine(HttpPreRequestScriptCache.class.getClassLoader());
+                    ApplicationManager.getApplication().getMessageBus().connect(ApplicationManager.getApplication())
+                            .subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+                                @Override
+                                public void after(@NotNull List<? extends VFileEvent> events) {
+                                    HttpPreRequestScriptCache.this.evict(events);
+                                }
+                            });
+                    this.myEngine = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    private void evict(@NotNull List<? extends VFileEvent> events) {
+        if (this.myScripts.isEmpty()) {
+            return;
+        }
+        for (VFileEvent event : events) {
+            if (event instanceof VFileContentChangeEvent) {
+                this.myScripts.remove(((VFileContentChangeEvent) event).getFile());
+            } else if (event instanceof VFileDeleteEvent) {
+                VirtualFile deleted = ((VFileDeleteEvent) event).getFile();
+                if (this.myScripts.keySet().removeIf(file -> VfsUtilCore.isAncestor(deleted, file, false))) {
+                    LOG.debug("Evicted pre-request scripts under " + deleted.getPath());
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long stamp;
+        private final CompiledScript script;
+
+        private Entry(long stamp, @NotNull CompiledScript script) {
+            this.stamp = stamp;
+            this.script = script;
+        }
+    }
+}
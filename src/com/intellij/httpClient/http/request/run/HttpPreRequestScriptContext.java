@@ -0,0 +1,54 @@
+package com.intellij.httpClient.http.request.run;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 前置脚本的执行环境: 独立的脚本全局对象和绑定, 执行同一个引擎编译出来的脚本. 不依赖IDE平台
+ */
+final class HttpPreRequestScriptContext {
+    private final ScriptContext myContext;
+    // 辅助脚本路径 -> 加载时的修改戳
+    private final Map<String, Long> myLoadedHelpers = new HashMap<>();
+
+    private HttpPreRequestScriptContext(@NotNull ScriptContext context) {
+        this.myContext = context;
+    }
+
+    static @NotNull HttpPreRequestScriptContext create(@NotNull ScriptEngine engine) {
+        SimpleScriptContext context = new SimpleScriptContext();
+        context.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+        return new HttpPreRequestScriptContext(context);
+    }
+
+    void setBinding(@NotNull String name, Object value) {
+        this.myContext.setAttribute(name, value, ScriptContext.ENGINE_SCOPE);
+    }
+
+    /**
+     * 公共的辅助脚本在每个执行环境里只加载一次, 修改戳变化后重新加载
+     */
+    void preload(@NotNull String helpersPath, long stamp, @NotNull ScriptLoader loader) throws IOException, ScriptException {
+        Long loaded = this.myLoadedHelpers.get(helpersPath);
+        if (loaded == null || loaded != stamp) {
+            loader.load().eval(this.myContext);
+            this.myLoadedHelpers.put(helpersPath, stamp);
+        }
+    }
+
+    void eval(@NotNull CompiledScript script) throws ScriptException {
+        script.eval(this.myContext);
+    }
+
+    interface ScriptLoader {
+        @NotNull CompiledScript load() throws IOException, ScriptException;
+    }
+}
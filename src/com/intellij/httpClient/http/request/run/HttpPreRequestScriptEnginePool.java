@@ -0,0 +1,70 @@
+package com.intellij.httpClient.http.request.run;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 前置脚本执行环境池. 每个执行环境有独立的脚本全局对象和绑定(见HttpPreRequestScriptContext),
+ * 共享同一个引擎编译出来的脚本, 因此不同的运行可以同时执行脚本而互不影响.
+ * 一个执行环境只在一次运行中复用, 运行结束后丢弃, 池中补充的是在后台新建的执行环境
+ */
+final class HttpPreRequestScriptEnginePool {
+    private static final int MAX_IDLE_ENGINES = 4;
+    private static final HttpPreRequestScriptEnginePool INSTANCE = new HttpPreRequestScriptEnginePool();
+
+    private final Deque<HttpPreRequestScriptContext> myIdle = new ArrayDeque<>();
+    // 正在后台创建的执行环境个数
+    private int myPending;
+
+    private HttpPreRequestScriptEnginePool() {
+    }
+
+    static @NotNull HttpPreRequestScriptEnginePool getInstance() {
+        return INSTANCE;
+    }
+
+    @NotNull HttpPreRequestScriptContext lease() {
+        synchronized (this.myIdle) {
+            HttpPreRequestScriptContext lease = this.myIdle.pollFirst();
+            if (lease != null) {
+                return lease;
+            }
+        }
+        // 池中没有空闲的执行环境时直接新建, 不阻塞调用线程
+        return createLease();
+    }
+
+    /**
+     * 归还的执行环境不再放回池中: 它的绑定还引用着上一次运行的请求、控制台和工程, 脚本定义的全局变量也还在.
+     * 改为在后台新建一个干净的执行环境补充到池中, 新建全局对象的开销不落在下一次运行上
+     */
+    void release(@NotNull HttpPreRequestScriptContext lease) {
+        synchronized (this.myIdle) {
+            if (this.myIdle.size() + this.myPending >= MAX_IDLE_ENGINES) {
+                return;
+            }
+            this.myPending++;
+        }
+        AppExecutorUtil.getAppExecutorService().execute(() -> {
+            HttpPreRequestScriptContext fresh = null;
+            try {
+                fresh = createLease();
+            } finally {
+                synchronized (this.myIdle) {
+                    this.myPending--;
+                    if (fresh != null) {
+                        this.myIdle.addFirst(fresh);
+                    }
+                }
+            }
+        });
+    }
+
+    private static @NotNull HttpPreRequestScriptContext createLease() {
+        return HttpPreRequestScriptContext.create(HttpPreRequestScriptCache.getInstance().getEngine());
+    }
+}
@@ -0,0 +1,87 @@
+package com.intellij.httpClient.http.request.run;
+
+import com.intellij.httpClient.http.request.psi.HttpHeaderField;
+import com.intellij.httpClient.http.request.psi.HttpRequest;
+import com.intellij.httpClient.http.request.psi.HttpRequestMessagesGroup;
+import com.intellij.httpClient.http.request.psi.HttpRequestTarget;
+import com.intellij.openapi.util.text.StringUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 前置脚本中的request变量: 执行脚本前在读操作中读取的请求快照, 内容是替换变量前的文本.
+ * 脚本在读锁之外的后台线程执行, 不能直接访问PSI
+ */
+public final class HttpPreRequestScriptRequest {
+    private final String myMethod;
+    private final String myUrl;
+    private final List<String[]> myHeaders;
+    private final @Nullable String myBody;
+    private final String myText;
+
+    private HttpPreRequestScriptRequest(@NotNull String method, @NotNull String url, @NotNull List<String[]> headers, @Nullable String body, @NotNull String text) {
+        this.myMethod = method;
+        this.myUrl = url;
+        this.myHeaders = headers;
+        this.myBody = body;
+        this.myText = text;
+    }
+
+    /**
+     * 调用方需要持有读锁
+     */
+    static @NotNull HttpPreRequestScriptRequest create(@NotNull HttpRequest request) {
+        HttpRequestTarget target = request.getRequestTarget();
+        List<String[]> headers = new ArrayList<>();
+        for (HttpHeaderField header : request.getHeaderFieldList()) {
+            String name = header.getName();
+            if (name != null) {
+                headers.add(new String[]{name, StringUtil.trim(StringUtil.substringAfter(header.getText(), ":"))});
+            }
+        }
+        HttpRequestMessagesGroup body = request.getRequestBody();
+        return new HttpPreRequestScriptRequest(request.getHttpMethod(), target != null ? target.getText() : "",
+                Collections.unmodifiableList(headers), body != null ? body.getText() : null, request.getText());
+    }
+
+    public @NotNull String getMethod() {
+        return this.myMethod;
+    }
+
+    public @NotNull String getUrl() {
+        return this.myUrl;
+    }
+
+    /**
+     * 第一个同名请求头的值, 名称不区分大小写
+     */
+    public @Nullable String getHeader(@NotNull String name) {
+        for (String[] header : this.myHeaders) {
+            if (header[0].equalsIgnoreCase(name)) {
+                return header[1];
+            }
+        }
+        return null;
+    }
+
+    public @NotNull List<String> getHeaderNames() {
+        List<String> names = new ArrayList<>(this.myHeaders.size());
+        for (String[] header : this.myHeaders) {
+            names.add(header[0]);
+        }
+        return names;
+    }
+
+    public @Nullable String getBody() {
+        return this.myBody;
+    }
+
+    public @NotNull String getText() {
+        return this.myText;
+    }
+}
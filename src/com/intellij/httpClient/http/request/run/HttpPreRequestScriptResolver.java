@@ -0,0 +1,205 @@
+package com.intellij.httpClient.http.request.run;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataHolderEx;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 按目录缓存前置脚本和公共辅助脚本的查找结果(包括"没有脚本"), 通过VFS事件失效.
+ * 查找只向上进行, 一个目录的变化只影响它自己和下级目录的结果, 事件发生时只移除这些目录
+ */
+final class HttpPreRequestScriptResolver {
+    static final String SCRIPT_NAME = "pre-request-script.js";
+    static final String HELPERS_NAME = "pre-request-helpers.js";
+    private static final int MAX_CACHED_DIRECTORIES = 2048;
+    private static final Object NO_SCRIPT = new Object();
+    private static final Key<HttpPreRequestScriptResolver> INSTANCE_KEY = Key.create("HttpPreRequestScriptResolver");
+
+    private final Project myProject;
+    private final Map<VirtualFile, Object> myResolved = createCache();
+    // 前置脚本所在目录 -> 同目录下的pre-request-helpers.js, 和myResolved使用同一个锁
+    private final Map<VirtualFile, Object> myHelpers = createCache();
+
+    private HttpPreRequestScriptResolver(@NotNull Project project) {
+        this.myProject = project;
+    }
+
+    static @NotNull HttpPreRequestScriptResolver getInstance(@NotNull Project project) {
+        HttpPreRequestScriptResolver resolver = project.getUserData(INSTANCE_KEY);
+        if (resolver == null) {
+            // 并发创建时只保留先放入的实例, 也只有它监听VFS事件
+            HttpPreRequestScriptResolver created = new HttpPreRequestScriptResolver(project);
+            resolver = ((UserDataHolderEx) project).putUserDataIfAbsent(INSTANCE_KEY, created);
+            if (resolver == created) {
+                created.subscribe();
+            }
+        }
+        return resolver;
+    }
+
+    private void subscribe() {
+        this.myProject.getMessageBus().connect(this.myProject).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void before(@NotNull List<? extends VFileEvent> events) {
+                HttpPreRequestScriptResolver.this.evict(events, true);
+            }
+
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                HttpPreRequestScriptResolver.this.evict(events, false);
+            }
+        });
+    }
+
+    /**
+     * 从目录开始逐级向上查找pre-request-script.js, 直到工程根目录
+     */
+    @Nullable VirtualFile resolve(@NotNull VirtualFile directory) {
+        String projectPath = this.myProject.getBasePath();
+        if (projectPath == null) {
+            return null;
+        }
+        synchronized (this.myResolved) {
+            return this.resolve(projectPath, directory);
+        }
+    }
+
+    private @Nullable VirtualFile resolve(@NotNull String projectPath, @Nullable VirtualFile directory) {
+        if (directory == null || !directory.isValid() || !directory.getPath().startsWith(projectPath)) {
+            return null;
+        }
+
+        Object cached = this.myResolved.get(directory);
+        if (cached == null) {
+            VirtualFile script = directory.findChild(SCRIPT_NAME);
+            if (script == null) {
+                script = this.resolve(projectPath, directory.getParent());
+            }
+            cached = script != null ? script : NO_SCRIPT;
+            this.myResolved.put(directory, cached);
+        }
+        return cached == NO_SCRIPT ? null : (VirtualFile) cached;
+    }
+
+    /**
+     * 前置脚本同目录下的pre-request-helpers.js, 在每个执行环境中只加载一次
+     */
+    @Nullable VirtualFile resolveHelpers(@NotNull VirtualFile script) {
+        VirtualFile directory = script.getParent();
+        if (directory == null) {
+            return null;
+        }
+        synchronized (this.myResolved) {
+            Object cached = this.myHelpers.get(directory);
+            if (cached == null) {
+                VirtualFile helpers = directory.findChild(HELPERS_NAME);
+                cached = helpers != null ? helpers : NO_SCRIPT;
+                this.myHelpers.put(directory, cached);
+            }
+            return cached == NO_SCRIPT ? null : (VirtualFile) cached;
+        }
+    }
+
+    /**
+     * 删除、移动和重命名在变化前处理, 这时文件和原来的上级目录仍然有效; 新建、复制、移动和重命名在变化后处理新的位置
+     */
+    private void evict(@NotNull List<? extends VFileEvent> events, boolean before) {
+        String projectPath = this.myProject.getBasePath();
+        if (projectPath == null) {
+            return;
+        }
+        synchronized (this.myResolved) {
+            if (this.myResolved.isEmpty() && this.myHelpers.isEmpty()) {
+                return;
+            }
+            for (VFileEvent event : events) {
+                if (!event.getPath().startsWith(projectPath) && !(event instanceof VFileMoveEvent)) {
+                    continue;
+                }
+                VirtualFile directory = getAffectedDirectory(event, before);
+                if (directory != null && directory.getPath().startsWith(projectPath)) {
+                    this.myResolved.keySet().removeIf(cached -> VfsUtilCore.isAncestor(directory, cached, false));
+                    this.myHelpers.keySet().removeIf(cached -> VfsUtilCore.isAncestor(directory, cached, false));
+                }
+            }
+        }
+    }
+
+    private static @NotNull Map<VirtualFile, Object> createCache() {
+        return new LinkedHashMap<VirtualFile, Object>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<VirtualFile, Object> eldest) {
+                return this.size() > MAX_CACHED_DIRECTORIES;
+            }
+        };
+    }
+
+    /**
+     * 查找结果可能变化的最上层目录: 目录本身被删除、移动或重命名时是这个目录, 脚本文件变化时是脚本所在目录.
+     * 新建的目录和复制出来的目录没有缓存过, 不需要处理
+     */
+    private static @Nullable VirtualFile getAffectedDirectory(@NotNull VFileEvent event, boolean before) {
+        if (event instanceof VFilePropertyChangeEvent) {
+            VFilePropertyChangeEvent propertyEvent = (VFilePropertyChangeEvent) event;
+            if (!propertyEvent.isRename()) {
+                return null;
+            }
+            VirtualFile file = propertyEvent.getFile();
+            if (file.isDirectory()) {
+                return file;
+            }
+            return isScriptName(propertyEvent.getOldValue()) || isScriptName(propertyEvent.getNewValue()) ? file.getParent() : null;
+        }
+        if (event instanceof VFileMoveEvent) {
+            VFileMoveEvent moveEvent = (VFileMoveEvent) event;
+            VirtualFile file = moveEvent.getFile();
+            if (file.isDirectory()) {
+                return file;
+            }
+            if (!isScriptName(file.getName())) {
+                return null;
+            }
+            return before ? moveEvent.getOldParent() : moveEvent.getNewParent();
+        }
+        if (event instanceof VFileDeleteEvent) {
+            if (!before) {
+                return null;
+            }
+            VirtualFile file = ((VFileDeleteEvent) event).getFile();
+            return file.isDirectory() ? file : isScriptName(file.getName()) ? file.getParent() : null;
+        }
+        if (before) {
+            return null;
+        }
+        if (event instanceof VFileCreateEvent) {
+            VFileCreateEvent createEvent = (VFileCreateEvent) event;
+            return isScriptName(createEvent.getChildName()) ? createEvent.getParent() : null;
+        }
+        if (event instanceof VFileCopyEvent) {
+            VFileCopyEvent copyEvent = (VFileCopyEvent) event;
+            return isScriptName(copyEvent.getNewChildName()) ? copyEvent.getNewParent() : null;
+        }
+        return null;
+    }
+
+    private static boolean isScriptName(Object name) {
+        return SCRIPT_NAME.equals(name) || HELPERS_NAME.equals(name);
+    }
+}
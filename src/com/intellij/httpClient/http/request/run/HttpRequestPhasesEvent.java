@@ -0,0 +1,42 @@
+package com.intellij.httpClient.http.request.run;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 请求各阶段耗时的JFR事件, 没有开启记录时几乎没有开销
+ */
+@Name("com.intellij.httpClient.RequestPhases")
+@Label("HTTP Client Request Phases")
+@Category({"HTTP Client"})
+@Description("Per-phase timing of an HTTP client request execution")
+@StackTrace(false)
+final class HttpRequestPhasesEvent extends Event {
+    @Label("Request")
+    String request;
+
+    @Label("Script Lookup")
+    @Timespan(Timespan.NANOSECONDS)
+    long scriptLookup;
+
+    @Label("Script Evaluation")
+    @Timespan(Timespan.NANOSECONDS)
+    long script;
+
+    @Label("Signing")
+    @Timespan(Timespan.NANOSECONDS)
+    long signing;
+
+    @Label("Substitution")
+    @Timespan(Timespan.NANOSECONDS)
+    long substitution;
+
+    @Label("Exchange")
+    @Timespan(Timespan.NANOSECONDS)
+    long exchange;
+}
@@ -0,0 +1,106 @@
+package com.intellij.httpClient.http.request.run;
+
+import com.intellij.httpClient.http.request.HttpRequestVariableSubstitutor;
+import com.intellij.openapi.util.text.StringUtil;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 运行参数. 运行配置的Settings在插件本体中无法扩展, 所以从当前环境(http-client.env.json)中读取,
+ * 环境中没有配置时再读取同名的系统属性, 例如
+ * <pre>
+ * "staging": {
+ *   "rest-client.concurrency": "8",
+ *   "rest-client.repeat.count": "100"
+ * }
+ * </pre>
+ */
+final class HttpRequestRunOptions {
+    static final String CONCURRENCY = "rest-client.concurrency";
+    static final String REPEAT_COUNT = "rest-client.repeat.count";
+    static final String REPEAT_DURATION = "rest-client.repeat.duration";
+    static final String REPEAT_RATE = "rest-client.repeat.rate";
+    static final String TIMINGS = "rest-client.timings";
+    private static final int MAX_CONCURRENCY = 64;
+    // 执行控制器会把每个完整响应保存在控制台中, 压测模式的请求总数必须有上限, 否则长时间运行会耗尽IDE的内存
+    static final int MAX_REPEAT_REQUESTS = 1000;
+
+    private final int myConcurrency;
+    private final int myRepeatCount;
+    private final int myRepeatDurationSeconds;
+    private final int myRepeatRate;
+    private final @Nullable String myTimings;
+
+    private HttpRequestRunOptions(int concurrency, int repeatCount, int repeatDurationSeconds, int repeatRate, @Nullable String timings) {
+        this.myConcurrency = concurrency;
+        this.myRepeatCount = repeatCount;
+        this.myRepeatDurationSeconds = repeatDurationSeconds;
+        this.myRepeatRate = repeatRate;
+        this.myTimings = timings;
+    }
+
+    static @NotNull HttpRequestRunOptions create(@NotNull HttpRequestVariableSubstitutor substitutor) {
+        int concurrency = getInt(substitutor, CONCURRENCY, 1);
+        return new HttpRequestRunOptions(Math.max(1, Math.min(concurrency, MAX_CONCURRENCY)),
+                Math.max(0, getInt(substitutor, REPEAT_COUNT, 0)),
+                Math.max(0, getInt(substitutor, REPEAT_DURATION, 0)),
+                Math.max(0, getInt(substitutor, REPEAT_RATE, 0)),
+                getValue(substitutor, TIMINGS));
+    }
+
+    /**
+     * 同时执行的最大请求数, 1表示按顺序逐个执行
+     */
+    int getConcurrency() {
+        return this.myConcurrency;
+    }
+
+    /**
+     * 配置了重复次数或者持续时间时进入压测模式, 只统计耗时, 最后输出汇总
+     */
+    boolean isRepeat() {
+        return this.myRepeatCount > 1 || this.myRepeatDurationSeconds > 0;
+    }
+
+    /**
+     * 整个文件重复执行的次数, 只配置了持续时间时不限次数. 无论次数和持续时间, 最多发出MAX_REPEAT_REQUESTS个请求
+     */
+    int getRepeatCount() {
+        return this.myRepeatCount > 0 ? this.myRepeatCount : (this.myRepeatDurationSeconds > 0 ? Integer.MAX_VALUE : 1);
+    }
+
+    int getRepeatDurationSeconds() {
+        return this.myRepeatDurationSeconds;
+    }
+
+    /**
+     * 每秒最多发出的请求数, 0表示不限制
+     */
+    int getRepeatRate() {
+        return this.myRepeatRate;
+    }
+
+    /**
+     * 是否在控制台输出每个请求各阶段的耗时
+     */
+    boolean isPrintTimings() {
+        return "true".equals(this.myTimings) || this.isPrintTimingsAsJson();
+    }
+
+    /**
+     * 耗时输出为JSON, 每个请求一行
+     */
+    boolean isPrintTimingsAsJson() {
+        return "json".equals(this.myTimings);
+    }
+
+    static int getInt(@NotNull HttpRequestVariableSubstitutor substitutor, @NotNull String name, int defaultValue) {
+        return StringUtil.parseInt(getValue(substitutor, name), defaultValue);
+    }
+
+    static @Nullable String getValue(@NotNull HttpRequestVariableSubstitutor substitutor, @NotNull String name) {
+        String value = substitutor.getEnvironmentVariableValue(name, null);
+        return value != null ? value : System.getProperty(name);
+    }
+}
@@ -0,0 +1,332 @@
+package com.intellij.httpClient.http.request.run;
+
+import com.intellij.httpClient.http.request.HttpRequestSignature;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 内置请求签名, 不需要脚本引擎. 在环境中配置, 例如
+ * <pre>
+ * "staging": {
+ *   "rest-client.signing.algorithm": "HmacSHA256",
+ *   "rest-client.signing.secret": "..."
+ * }
+ * </pre>
+ * 签名内容为按参数名、参数值排序的查询参数(不含签名参数本身), 加上时间戳和随机数参数, 格式为k1=v1&amp;k2=v2.
+ * Hmac算法用密钥计算, MD5算法计算"签名内容&amp;key=密钥"的摘要, 结果为小写十六进制.
+ * 每个线程复用Mac/MessageDigest实例和缓冲区, 签名过程中除了结果不创建字符串
+ */
+final class HttpRequestSigner {
+    static final String ALGORITHM = "rest-client.signing.algorithm";
+    static final String SECRET = "rest-client.signing.secret";
+    static final String SIGNATURE_PARAM = "rest-client.signing.param";
+    static final String TIMESTAMP_PARAM = "rest-client.signing.timestamp-param";
+    static final String NONCE_PARAM = "rest-client.signing.nonce-param";
+    static final String TIMESTAMP_UNIT = "rest-client.signing.timestamp-unit";
+
+    private static final String MD5 = "MD5";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private final String myAlgorithm;
+    private final SecretKeySpec myKey;
+    private final byte[] myDigestSuffix;
+    private final String mySignatureParam;
+    private final String myTimestampParam;
+    private final String myNonceParam;
+    private final boolean myTimestampInSeconds;
+
+    private HttpRequestSigner(@NotNull String algorithm, @NotNull String secret, @NotNull String signatureParam, @NotNull String timestampParam, @NotNull String nonceParam, boolean timestampInSeconds) {
+        this.myAlgorithm = algorithm;
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        this.myKey = MD5.equalsIgnoreCase(algorithm) ? null : new SecretKeySpec(secretBytes, algorithm);
+        this.myDigestSuffix = ("&key=" + secret).getBytes(StandardCharsets.UTF_8);
+        this.mySignatureParam = signatureParam;
+        this.myTimestampParam = timestampParam;
+        this.myNonceParam = nonceParam;
+        this.myTimestampInSeconds = timestampInSeconds;
+    }
+
+    /**
+     * @param config 按名称读取配置
+     * @return 没有配置算法或密钥时返回null
+     */
+    static @Nullable HttpRequestSigner create(@NotNull Function<String, String> config) throws NoSuchAlgorithmException {
+        String algorithm = config.apply(ALGORITHM);
+        String secret = config.apply(SECRET);
+        if (algorithm == null || algorithm.isEmpty() || secret == null) {
+            return null;
+        }
+        // 提前检查算法是否可用
+        if (MD5.equalsIgnoreCase(algorithm)) {
+            MessageDigest.getInstance(MD5);
+        } else {
+            Mac.getInstance(algorithm);
+        }
+        return new HttpRequestSigner(algorithm, secret,
+                valueOrDefault(config.apply(SIGNATURE_PARAM), "sign"),
+                valueOrDefault(config.apply(TIMESTAMP_PARAM), "timestamp"),
+                valueOrDefault(config.apply(NONCE_PARAM), "nonce"),
+                "s".equals(config.apply(TIMESTAMP_UNIT)));
+    }
+
+    /**
+     * @param url 完成变量替换的请求地址, 只使用其中的查询参数
+     */
+    @NotNull HttpRequestSignature sign(@NotNull CharSequence url) throws GeneralSecurityException {
+        long now = System.currentTimeMillis();
+        String timestamp = Long.toString(this.myTimestampInSeconds ? now / 1000L : now);
+        String nonce = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+
+        Buffers buffers = BUFFERS.get();
+        StringBuilder source = buffers.mySource;
+        source.setLength(0);
+        int queryStart = indexOf(url, '?', 0, url.length());
+        if (queryStart >= 0) {
+            int queryEnd = indexOf(url, '#', queryStart, url.length());
+            source.append(url, queryStart + 1, queryEnd >= 0 ? queryEnd : url.length());
+        }
+        int queryLength = source.length();
+        source.append('&').append(this.myTimestampParam).append('=').append(timestamp);
+        source.append('&').append(this.myNonceParam).append('=').append(nonce);
+
+        int count = this.parse(source, queryLength, buffers);
+        sort(source, buffers, count);
+        int length = encode(source, buffers, count);
+        if (this.myKey == null) {
+            buffers.ensureBytes(length + this.myDigestSuffix.length);
+            System.arraycopy(this.myDigestSuffix, 0, buffers.myBytes, length, this.myDigestSuffix.length);
+            length += this.myDigestSuffix.length;
+        }
+        return new HttpRequestSignature(this.digest(buffers, length), timestamp, nonce);
+    }
+
+    /**
+     * 解析参数位置, 每个参数占3个int: 参数名开始、参数名结束、参数结束. 地址中的签名、时间戳、随机数参数会被跳过
+     */
+    private int parse(@NotNull StringBuilder source, int queryLength, @NotNull Buffers buffers) {
+        int count = 0;
+        int start = 0;
+        int length = source.length();
+        while (start <= length) {
+            int end = indexOf(source, '&', start, length);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                int keyEnd = indexOf(source, '=', start, end);
+                if (keyEnd < 0) {
+                    keyEnd = end;
+                }
+                if (start >= queryLength || !this.isReserved(source, start, keyEnd)) {
+                    buffers.ensureRanges(count + 1);
+                    buffers.myRanges[count * 3] = start;
+                    buffers.myRanges[count * 3 + 1] = keyEnd;
+                    buffers.myRanges[count * 3 + 2] = end;
+                    buffers.myOrder[count] = count;
+                    count++;
+                }
+            }
+            start = end + 1;
+        }
+        return count;
+    }
+
+    private boolean isReserved(@NotNull CharSequence source, int start, int end) {
+        return regionEquals(source, start, end, this.mySignatureParam)
+                || regionEquals(source, start, end, this.myTimestampParam)
+                || regionEquals(source, start, end, this.myNonceParam);
+    }
+
+    private static void sort(@NotNull CharSequence source, @NotNull Buffers buffers, int count) {
+        // 参数一般不多, 插入排序即可
+        int[] order = buffers.myOrder;
+        for (int i = 1; i < count; i++) {
+            int current = order[i];
+            int j = i - 1;
+            while (j >= 0 && compare(source, buffers.myRanges, order[j], current) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+    }
+
+    private static int compare(@NotNull CharSequence source, int[] ranges, int first, int second) {
+        int result = compareRegions(source, ranges[first * 3], ranges[first * 3 + 1], ranges[second * 3], ranges[second * 3 + 1]);
+        if (result != 0) {
+            return result;
+        }
+        return compareRegions(source, ranges[first * 3 + 1], ranges[first * 3 + 2], ranges[second * 3 + 1], ranges[second * 3 + 2]);
+    }
+
+    private static int encode(@NotNull CharSequence source, @NotNull Buffers buffers, int count) {
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int param = buffers.myOrder[i];
+            int start = buffers.myRanges[param * 3];
+            int keyEnd = buffers.myRanges[param * 3 + 1];
+            int end = buffers.myRanges[param * 3 + 2];
+            if (i > 0) {
+                length = buffers.put(length, (byte) '&');
+            }
+            length = buffers.putUtf8(length, source, start, keyEnd);
+            length = buffers.put(length, (byte) '=');
+            length = buffers.putUtf8(length, source, keyEnd < end ? keyEnd + 1 : end, end);
+        }
+        return length;
+    }
+
+    private @NotNull String digest(@NotNull Buffers buffers, int length) throws GeneralSecurityException {
+        byte[] result = buffers.myResult;
+        int resultLength;
+        if (this.myKey == null) {
+            MessageDigest digest = buffers.getDigest();
+            digest.update(buffers.myBytes, 0, length);
+            resultLength = digest.digest(result, 0, result.length);
+        } else {
+            Mac mac = buffers.getMac(this.myAlgorithm, this.myKey);
+            mac.update(buffers.myBytes, 0, length);
+            resultLength = mac.getMacLength();
+            mac.doFinal(result, 0);
+        }
+
+        char[] hex = new char[resultLength * 2];
+        for (int i = 0; i < resultLength; i++) {
+            hex[i * 2] = HEX[(result[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[result[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static int indexOf(@NotNull CharSequence text, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(@NotNull CharSequence source, int start, int end, @NotNull String name) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (source.charAt(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int compareRegions(@NotNull CharSequence source, int firstStart, int firstEnd, int secondStart, int secondEnd) {
+        int firstLength = firstEnd - firstStart;
+        int secondLength = secondEnd - secondStart;
+        int length = Math.min(firstLength, secondLength);
+        for (int i = 0; i < length; i++) {
+            int result = source.charAt(firstStart + i) - source.charAt(secondStart + i);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return firstLength - secondLength;
+    }
+
+    private static @NotNull String valueOrDefault(@Nullable String value, @NotNull String defaultValue) {
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    /**
+     * 每个线程复用的缓冲区和摘要实例
+     */
+    private static final class Buffers {
+        private final StringBuilder mySource = new StringBuilder(256);
+        private final byte[] myResult = new byte[64];
+        private final Map<String, Mac> myMacs = new HashMap<>();
+        private final Map<String, SecretKeySpec> myMacKeys = new HashMap<>();
+        private byte[] myBytes = new byte[256];
+        private int[] myRanges = new int[48];
+        private int[] myOrder = new int[16];
+        private MessageDigest myDigest;
+
+        private @NotNull Mac getMac(@NotNull String algorithm, @NotNull SecretKeySpec key) throws GeneralSecurityException {
+            Mac mac = this.myMacs.get(algorithm);
+            if (mac == null) {
+                mac = Mac.getInstance(algorithm);
+                this.myMacs.put(algorithm, mac);
+            }
+            // 同一个运行的密钥对象相同, 只在密钥变化时重新初始化
+            if (this.myMacKeys.get(algorithm) != key) {
+                mac.init(key);
+                this.myMacKeys.put(algorithm, key);
+            }
+            return mac;
+        }
+
+        private @NotNull MessageDigest getDigest() throws NoSuchAlgorithmException {
+            if (this.myDigest == null) {
+                this.myDigest = MessageDigest.getInstance(MD5);
+            }
+            return this.myDigest;
+        }
+
+        private void ensureRanges(int count) {
+            if (this.myOrder.length < count) {
+                int capacity = Math.max(count, this.myOrder.length * 2);
+                this.myOrder = Arrays.copyOf(this.myOrder, capacity);
+                this.myRanges = Arrays.copyOf(this.myRanges, capacity * 3);
+            }
+        }
+
+        private void ensureBytes(int length) {
+            if (this.myBytes.length < length) {
+                this.myBytes = Arrays.copyOf(this.myBytes, Math.max(length, this.myBytes.length * 2));
+            }
+        }
+
+        private int put(int offset, byte b) {
+            this.ensureBytes(offset + 1);
+            this.myBytes[offset] = b;
+            return offset + 1;
+        }
+
+        private int putUtf8(int offset, @NotNull CharSequence source, int start, int end) {
+            this.ensureBytes(offset + (end - start) * 3);
+            byte[] bytes = this.myBytes;
+            for (int i = start; i < end; i++) {
+                char c = source.charAt(i);
+                if (c < 0x80) {
+                    bytes[offset++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[offset++] = (byte) (0xC0 | (c >> 6));
+                    bytes[offset++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(source.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, source.charAt(++i));
+                    bytes[offset++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[offset++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[offset++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    bytes[offset++] = (byte) (0xE0 | (c >> 12));
+                    bytes[offset++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[offset++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.intellij.httpClient.http.request.run;
+
+import java.util.Locale;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 单个请求各阶段的耗时, 使用单调时钟记录. 请求结束时提交JFR事件, 也可以输出为文本或JSON
+ */
+final class HttpRequestTimings {
+    enum Phase {
+        SCRIPT_LOOKUP("scriptLookup"),
+        SCRIPT("script"),
+        SIGNING("signing"),
+        SUBSTITUTION("substitution"),
+        // 连接、发送、等待响应、下载和响应处理脚本都在插件本体的执行控制器中, 只能整体统计
+        EXCHANGE("exchange");
+
+        private final String myId;
+
+        Phase(@NotNull String id) {
+            this.myId = id;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final String myName;
+    private final long[] myNanos = new long[PHASES.length];
+    private final long myStartNanos;
+    private long myPhaseStartNanos;
+
+    HttpRequestTimings(@NotNull String name) {
+        this.myName = name;
+        this.myStartNanos = System.nanoTime();
+        this.myPhaseStartNanos = this.myStartNanos;
+    }
+
+    /**
+     * 记录从上一个阶段结束到现在的耗时
+     */
+    void mark(@NotNull Phase phase) {
+        long now = System.nanoTime();
+        this.myNanos[phase.ordinal()] += now - this.myPhaseStartNanos;
+        this.myPhaseStartNanos = now;
+    }
+
+    long getNanos(@NotNull Phase phase) {
+        return this.myNanos[phase.ordinal()];
+    }
+
+    long getTotalNanos() {
+        return this.myPhaseStartNanos - this.myStartNanos;
+    }
+
+    void commit() {
+        HttpRequestPhasesEvent event = new HttpRequestPhasesEvent();
+        if (event.isEnabled()) {
+            event.request = this.myName;
+            event.scriptLookup = this.getNanos(Phase.SCRIPT_LOOKUP);
+            event.script = this.getNanos(Phase.SCRIPT);
+            event.signing = this.getNanos(Phase.SIGNING);
+            event.substitution = this.getNanos(Phase.SUBSTITUTION);
+            event.exchange = this.getNanos(Phase.EXCHANGE);
+            event.commit();
+        }
+    }
+
+    @NotNull String format() {
+        StringBuilder builder = new StringBuilder(this.myName).append(':');
+        for (Phase phase : PHASES) {
+            builder.append(' ').append(phase.myId).append('=').append(formatMillis(this.getNanos(phase))).append("ms");
+        }
+        return builder.append(" total=").append(formatMillis(this.getTotalNanos())).append("ms").toString();
+    }
+
+    @NotNull String toJson() {
+        StringBuilder builder = new StringBuilder("{\"request\":\"");
+        for (int i = 0; i < this.myName.length(); i++) {
+            char c = this.myName.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+        for (Phase phase : PHASES) {
+            builder.append(",\"").append(phase.myId).append("Nanos\":").append(this.getNanos(phase));
+        }
+        return builder.append(",\"totalNanos\":").append(this.getTotalNanos()).append('}').toString();
+    }
+
+    private static @NotNull String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+    }
+}
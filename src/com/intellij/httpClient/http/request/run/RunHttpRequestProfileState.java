@@ -9,10 +9,14 @@ import com.intellij.execution.process.ProcessAdapter;
 import com.intellij.execution.process.ProcessEvent;
 import com.intellij.execution.runners.ProgramRunner;
 import com.intellij.execution.testframework.sm.runner.SMTRunnerConsoleProperties;
+import com.intellij.execution.ui.ConsoleView;
 import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.execution.ui.ExecutionConsole;
 import com.intellij.httpClient.execution.RestClientBundle;
+import com.intellij.httpClient.http.request.HttpRequestScriptEnvironment;
 import com.intellij.httpClient.http.request.HttpRequestVariableSubstitutor;
 import com.intellij.httpClient.http.request.psi.HttpRequest;
+import com.intellij.httpClient.http.request.psi.HttpRequestTarget;
 import com.intellij.httpClient.http.request.run.config.HttpRequestExecutionConfig;
 import com.intellij.httpClient.http.request.run.config.HttpRequestRunConfiguration;
 import com.intellij.httpClient.http.request.run.console.HttpResponseConsole;
@@ -20,36 +24,61 @@ import com.intellij.httpClient.http.request.run.console.HttpResponsePresentation
 import com.intellij.httpClient.http.request.run.console.HttpSingleResponseConsole;
 import com.intellij.httpClient.http.request.run.test.HttpMultiResponseConsole;
 import com.intellij.ide.scratch.ScratchUtil;
-import com.intellij.ide.script.IdeScriptEngine;
-import com.intellij.ide.script.IdeScriptEngineManager;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.SmartPointerManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 
-import java.io.FileReader;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import javax.script.CompiledScript;
 
-import org.apache.commons.io.IOUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.ApiStatus.Internal;
 
 public class RunHttpRequestProfileState implements RunProfileState {
     private static final Logger logger = Logger.getInstance(HttpRunRequestInfo.class);
+    private static final int MAX_TIMINGS_NAME_LENGTH = 200;
     private final Project myProject;
     private final HttpRequestExecutionConfig myConfig;
     private final SMTRunnerConsoleProperties myProperties;
     private final HttpRequestVariableSubstitutor mySubstitutor;
     @NotNull
     protected final HttpRequestRunConfiguration.Settings mySettings;
-
-    private static final IdeScriptEngine engine = IdeScriptEngineManager.getInstance().getEngineByFileExtension("js", null);
+    // 本次运行借用的脚本执行环境, 运行结束后归还到池中
+    private final Deque<HttpPreRequestScriptContext> myIdleEngines = new ArrayDeque<>();
+    private boolean myEnginesReleased;
+    // 交给脚本的环境, 同一次运行中的脚本使用同一个
+    private @Nullable HttpRequestScriptEnvironment myScriptEnvironment;
+    // 环境中配置了内置签名时不为null
+    private @Nullable HttpRequestSigner mySigner;
+    private @Nullable HttpRequestRunOptions myOptions;
+    // 前置脚本或签名出错时只提示一次, 压测模式下每次都提示会弹出大量对话框
+    private final AtomicBoolean myErrorReported = new AtomicBoolean();
+    // 已生成但还没有执行完的请求的耗时记录
+    private final Map<HttpRunRequestInfo, HttpRequestTimings> myTimings = Collections.synchronizedMap(new IdentityHashMap<>());
 
     public RunHttpRequestProfileState(@NotNull Project project, @NotNull HttpRequestRunConfiguration.Settings settings, @NotNull HttpRequestExecutionConfig config, @NotNull SMTRunnerConsoleProperties properties, @NotNull HttpRequestVariableSubstitutor substitutor) {
         super();
@@ -70,14 +99,29 @@ public class RunHttpRequestProfileState implements RunProfileState {
             return requestx.getResponseHandler() != null;
         });
         HttpClientRequestProcessHandler processHandler = new HttpClientRequestProcessHandler(hasResponseHandler);
-        List<HttpRunRequestInfo> infos = new ArrayList();
-        Iterator var4 = this.myConfig.getRequests().iterator();
-        while(var4.hasNext()) {
-            HttpRequest request = (HttpRequest)var4.next();
-            infos.add(HttpRunRequestInfo.create(request, SmartPointerManager.createPointer(request), this.mySubstitutor));
+        List<HttpRequest> requests = this.myConfig.getRequests();
+        HttpRequestRunOptions options = HttpRequestRunOptions.create(this.mySubstitutor);
+        this.myOptions = options;
+        try {
+            this.mySigner = HttpRequestSigner.create(name -> HttpRequestRunOptions.getValue(this.mySubstitutor, name));
+        } catch (NoSuchAlgorithmException e) {
+            throw new ExecutionException(e.getMessage(), e);
+        }
+        if (requests.isEmpty()) {
+            throw new ExecutionException(RestClientBundle.message("http.request.no.requests.to.execute.error", new Object[0]));
+        }
+        Iterator<HttpRunRequestInfo> preparedRequests = null;
+        final HttpResponseConsole console;
+        if (requests.size() == 1 && !options.isRepeat()) {
+            // 先执行前置脚本再创建控制台, 控制台展示的就是实际发送的请求. 脚本在这期间的输出先暂存, 控制台创建后再输出
+            HttpPreRequestScriptBindings.DeferredConsole scriptConsole = new HttpPreRequestScriptBindings.DeferredConsole();
+            HttpRunRequestInfo info = this.prepareRequest(requests.get(0), scriptConsole.getConsole(), null);
+            console = this.createConsole(processHandler, info);
+            scriptConsole.flushTo(console.getConsole());
+            preparedRequests = Collections.singletonList(info).iterator();
+        } else {
+            console = this.createConsole(processHandler, null);
         }
-
-        final HttpResponseConsole console = this.createConsole(processHandler, infos);
         processHandler.addProcessListener(new ProcessAdapter() {
             public void processTerminated(@NotNull ProcessEvent event) {
                 int exitCode = event.getExitCode();
@@ -86,55 +130,192 @@ public class RunHttpRequestProfileState implements RunProfileState {
                     console.setErrorResponse((String)null, HttpResponsePresentation.createErrorResponse(message));
                 }
 
+                RunHttpRequestProfileState.this.releaseEngines();
             }
         });
 
-        for (HttpRequest psiRequest : this.myConfig.getRequests()) {
-            // 判断是否有前置脚本需要执行
-            if (psiRequest.getContainingFile() != null && !ScratchUtil.isScratch(psiRequest.getContainingFile().getVirtualFile())) {
-                // 查找同级目录或上级目录中文件名为pre-request-script.js的文件
-                String projectPath = psiRequest.getProject().getBasePath();
-                VirtualFile searchDir = psiRequest.getContainingFile().getVirtualFile().getParent();
-                VirtualFile preRequestScriptFile = searchPreRequestScript(projectPath, searchDir);
-                if (preRequestScriptFile != null) {
-                    // 执行前置脚本
-                    try (FileReader reader = new FileReader(preRequestScriptFile.getPath())) {
-                        engine.setBinding("variables", this.mySubstitutor.getVariables());
-                        engine.setBinding("global", this.mySubstitutor.getGlobal());
-                        engine.setBinding("environment", this.mySubstitutor.getEnvironment());
-                        engine.setBinding("request", psiRequest);
-                        engine.setBinding("project", projectPath);
-                        engine.setBinding("console", console.getConsole());
-                        engine.setBinding("consoleViewContentTypeInfo", ConsoleViewContentType.LOG_INFO_OUTPUT);
-                        engine.eval(IOUtils.toString(reader));
-                    } catch (Exception e) {
-                        Messages.showErrorDialog(e.getMessage(), "ERROR");
-                    }
-                }
+        // 前置脚本不再提前统一执行, 而是在每个请求发送前执行, 保证签名等变量是最新的
+        if (preparedRequests != null) {
+            this.executeHttpRequest(this.myProject, preparedRequests, processHandler, console, true);
+        } else if (options.isRepeat() || options.getConcurrency() > 1) {
+            new ScheduledExecution(this.myProject, requests, processHandler, console, options).start();
+        } else {
+            this.executeHttpRequest(this.myProject, new PreparingIterator(requests.iterator(), console), processHandler, console, false);
+        }
+        return new DefaultExecutionResult(console.getConsole(), processHandler);
+    }
+
+    /**
+     * 执行请求的前置脚本, 然后再生成请求信息, 这样变量替换使用的是脚本执行后的结果.
+     * 只在读取PSI、签名和生成请求信息时持有读锁, 脚本在读锁之外执行, 执行时间长也不会阻塞写操作
+     *
+     * @param scriptConsole 脚本中通过console变量使用的控制台
+     * @param onError 前置脚本或签名出错时调用, 请求仍然会发出
+     */
+    private @NotNull HttpRunRequestInfo prepareRequest(@NotNull HttpRequest psiRequest, @Nullable ExecutionConsole scriptConsole, @Nullable Runnable onError) {
+        HttpRequestTimings timings = ReadAction.compute(() -> new HttpRequestTimings(getTimingsName(psiRequest)));
+        boolean scriptSucceeded = this.runPreRequestScript(psiRequest, scriptConsole, timings);
+        Pair<HttpRunRequestInfo, Boolean> prepared = ReadAction.compute(() -> {
+            try {
+                boolean signed = this.signRequest(psiRequest);
+                timings.mark(HttpRequestTimings.Phase.SIGNING);
+                HttpRunRequestInfo created = HttpRunRequestInfo.create(psiRequest, SmartPointerManager.createPointer(psiRequest), this.mySubstitutor);
+                timings.mark(HttpRequestTimings.Phase.SUBSTITUTION);
+                return Pair.create(created, signed);
+            } finally {
+                this.mySubstitutor.clearPinnedDynamicVariables();
             }
+        });
+        if ((!scriptSucceeded || !prepared.second) && onError != null) {
+            onError.run();
         }
+        this.myTimings.put(prepared.first, timings);
+        return prepared.first;
+    }
 
-        this.executeHttpRequest(this.myProject, infos.iterator(), processHandler, console, infos.size() == 1);
-        return new DefaultExecutionResult(console.getConsole(), processHandler);
+    /**
+     * 耗时记录中的请求名: 请求方法和替换变量前的地址, 不包含请求体, 过长时截断
+     */
+    private static @NotNull String getTimingsName(@NotNull HttpRequest psiRequest) {
+        HttpRequestTarget target = psiRequest.getRequestTarget();
+        String url = target != null ? StringUtil.collapseWhiteSpace(target.getText()) : "";
+        return StringUtil.first(psiRequest.getHttpMethod() + " " + url, MAX_TIMINGS_NAME_LENGTH, true);
     }
 
-    private static VirtualFile searchPreRequestScript(String projectPath, VirtualFile searchDir) {
-        if (searchDir.getPath().startsWith(projectPath)) {
-            VirtualFile jsFile = searchDir.findChild("pre-request-script.js");
-            if (jsFile != null) {
-                return jsFile;
+    /**
+     * 请求执行完成, 记录整个请求交换的耗时并输出
+     */
+    private void onRequestExecuted(@NotNull HttpRunRequestInfo info, @NotNull HttpResponseConsole console) {
+        HttpRequestTimings timings = this.myTimings.remove(info);
+        if (timings == null) {
+            return;
+        }
+        timings.mark(HttpRequestTimings.Phase.EXCHANGE);
+        timings.commit();
+        if (this.myOptions != null && this.myOptions.isPrintTimings() && console.getConsole() instanceof ConsoleView) {
+            String text = this.myOptions.isPrintTimingsAsJson() ? timings.toJson() : timings.format();
+            ((ConsoleView) console.getConsole()).print(text + "\n", ConsoleViewContentType.LOG_DEBUG_OUTPUT);
+        }
+    }
+
+    /**
+     * 内置签名, 对替换变量后的查询参数计算签名, 结果通过动态变量引用.
+     * 地址中动态变量的值在签名时固定, 生成请求信息时使用相同的值, 服务端收到的参数就是签名的参数
+     */
+    private boolean signRequest(@NotNull HttpRequest psiRequest) {
+        if (this.mySigner == null) {
+            return true;
+        }
+        HttpRequestTarget target = psiRequest.getRequestTarget();
+        try {
+            this.mySubstitutor.setSignature(this.mySigner.sign(target != null ? this.mySubstitutor.getValuePinningDynamicVariables(target) : ""));
+            return true;
+        } catch (GeneralSecurityException e) {
+            logger.warn("Failed to sign request", e);
+            this.reportError(e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 同一次运行中只提示第一个错误, 之后的错误只记录日志
+     */
+    private void reportError(@Nullable String message) {
+        if (this.myErrorReported.compareAndSet(false, true)) {
+            ApplicationManager.getApplication().invokeLater(() -> Messages.showErrorDialog(message, "ERROR"));
+        }
+    }
+
+    /**
+     * @return 没有前置脚本或者脚本执行成功时返回true
+     */
+    private boolean runPreRequestScript(@NotNull HttpRequest psiRequest, @Nullable ExecutionConsole console, @NotNull HttpRequestTimings timings) {
+        // 判断是否有前置脚本需要执行
+        VirtualFile file = ReadAction.compute(() -> {
+            PsiFile containingFile = psiRequest.getContainingFile();
+            return containingFile != null ? containingFile.getVirtualFile() : null;
+        });
+        // 查找同级目录或上级目录中文件名为pre-request-script.js的文件, 查找结果按目录缓存
+        String projectPath = this.myProject.getBasePath();
+        VirtualFile searchDir = file != null && !ScratchUtil.isScratch(file) ? file.getParent() : null;
+        VirtualFile preRequestScriptFile = searchDir != null ? HttpPreRequestScriptResolver.getInstance(this.myProject).resolve(searchDir) : null;
+        // 没有前置脚本时也要记录, 否则查找的耗时会计入签名阶段
+        timings.mark(HttpRequestTimings.Phase.SCRIPT_LOOKUP);
+        if (preRequestScriptFile == null) {
+            return true;
+        }
+        // 执行前置脚本, 编译结果按文件修改戳缓存, 在本次运行独占的执行环境中执行
+        HttpPreRequestScriptContext engine = this.acquireEngine();
+        try {
+            CompiledScript script = HttpPreRequestScriptCache.getInstance().getCompiledScript(preRequestScriptFile);
+            VirtualFile helpers = HttpPreRequestScriptResolver.getInstance(this.myProject).resolveHelpers(preRequestScriptFile);
+            if (helpers != null) {
+                engine.preload(helpers.getPath(), helpers.getModificationStamp(), () -> HttpPreRequestScriptCache.getInstance().getCompiledScript(helpers));
             }
-            return searchPreRequestScript(projectPath, searchDir.getParent());
+            engine.setBinding("variables", this.mySubstitutor.getVariables());
+            engine.setBinding("global", this.mySubstitutor.getGlobal());
+            engine.setBinding("environment", this.getScriptEnvironment());
+            engine.setBinding("request", ReadAction.compute(() -> HttpPreRequestScriptRequest.create(psiRequest)));
+            engine.setBinding("project", projectPath);
+            engine.setBinding("console", console);
+            engine.setBinding("consoleViewContentTypeInfo", ConsoleViewContentType.LOG_INFO_OUTPUT);
+            engine.eval(script);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to execute " + preRequestScriptFile.getPath(), e);
+            this.reportError(e.getMessage());
+            return false;
+        } finally {
+            this.releaseEngine(engine);
+            timings.mark(HttpRequestTimings.Phase.SCRIPT);
         }
-        return null;
     }
 
-    private @NotNull HttpResponseConsole createConsole(@NotNull HttpClientRequestProcessHandler processHandler, @NotNull List<HttpRunRequestInfo> requests) throws ExecutionException {
-        if (requests.isEmpty()) {
-            throw new ExecutionException(RestClientBundle.message("http.request.no.requests.to.execute.error", new Object[0]));
-        } else if (requests.size() == 1) {
-            HttpRunRequestInfo info = (HttpRunRequestInfo)requests.get(0);
-            return new HttpSingleResponseConsole(this.myProject, this.myProperties, processHandler, this.myConfig.isShowInformationAboutRequest(), info);
+    private synchronized @NotNull HttpRequestScriptEnvironment getScriptEnvironment() {
+        HttpRequestScriptEnvironment environment = this.myScriptEnvironment;
+        if (environment == null) {
+            environment = this.mySubstitutor.getScriptEnvironment();
+            this.myScriptEnvironment = environment;
+        }
+        return environment;
+    }
+
+    private @NotNull HttpPreRequestScriptContext acquireEngine() {
+        synchronized (this.myIdleEngines) {
+            HttpPreRequestScriptContext engine = this.myIdleEngines.pollFirst();
+            if (engine != null) {
+                return engine;
+            }
+        }
+        return HttpPreRequestScriptEnginePool.getInstance().lease();
+    }
+
+    private void releaseEngine(@NotNull HttpPreRequestScriptContext engine) {
+        synchronized (this.myIdleEngines) {
+            if (!this.myEnginesReleased) {
+                this.myIdleEngines.addFirst(engine);
+                return;
+            }
+        }
+        HttpPreRequestScriptEnginePool.getInstance().release(engine);
+    }
+
+    private void releaseEngines() {
+        List<HttpPreRequestScriptContext> engines;
+        synchronized (this.myIdleEngines) {
+            this.myEnginesReleased = true;
+            engines = new ArrayList<>(this.myIdleEngines);
+            this.myIdleEngines.clear();
+        }
+        engines.forEach(HttpPreRequestScriptEnginePool.getInstance()::release);
+    }
+
+    /**
+     * @param singleRequest 只执行一个请求时为执行前置脚本后生成的请求信息, 控制台用它展示请求
+     */
+    private @NotNull HttpResponseConsole createConsole(@NotNull HttpClientRequestProcessHandler processHandler, @Nullable HttpRunRequestInfo singleRequest) {
+        if (singleRequest != null) {
+            return new HttpSingleResponseConsole(this.myProject, this.myProperties, processHandler, this.myConfig.isShowInformationAboutRequest(), singleRequest);
         } else {
             return new HttpMultiResponseConsole(this.myProject, this.myProperties, processHandler);
         }
@@ -147,14 +328,27 @@ public class RunHttpRequestProfileState implements RunProfileState {
             } catch (ExecutionException var7) {
                 HttpRequestNotifications.showErrorBalloon(project, RestClientBundle.message("rest.client.request.execute.notification", new Object[0]), var7.getMessage());
                 processHandler.onRunFinished();
+            } catch (ProcessCanceledException e) {
+                processHandler.onRunFinished();
+                throw e;
+            } catch (RuntimeException e) {
+                // 生成下一个请求时出错(例如请求在执行过程中被编辑), 结束运行而不是一直处于运行状态
+                logger.warn("Failed to prepare request", e);
+                HttpRequestNotifications.showErrorBalloon(project, RestClientBundle.message("rest.client.request.execute.notification", new Object[0]), e.getMessage());
+                processHandler.onRunFinished();
             }
 
         }
     }
 
     protected @NotNull HttpClientExecutionController createExecutionController(@NotNull Project project, @NotNull Iterator<HttpRunRequestInfo> requests, @NotNull HttpClientRequestProcessHandler processHandler, @NotNull HttpResponseConsole console, boolean showResponseInplace) throws ExecutionException {
-        Runnable onRequestFinished = this.createOnFinished(project, console, processHandler, requests, showResponseInplace);
-        return HttpClientExecutionController.create(project, (HttpRunRequestInfo)requests.next(), processHandler, console, onRequestFinished, showResponseInplace, this.mySettings, false);
+        Runnable onFinished = this.createOnFinished(project, console, processHandler, requests, showResponseInplace);
+        HttpRunRequestInfo info = (HttpRunRequestInfo)requests.next();
+        Runnable onRequestFinished = () -> {
+            this.onRequestExecuted(info, console);
+            onFinished.run();
+        };
+        return HttpClientExecutionController.create(project, info, processHandler, console, onRequestFinished, showResponseInplace, this.mySettings, false);
     }
 
     protected @NotNull Runnable createOnFinished(@NotNull Project project, @NotNull HttpResponseConsole console, @NotNull HttpClientRequestProcessHandler processHandler, @NotNull Iterator<HttpRunRequestInfo> requests, boolean showResponseInplace) {
@@ -168,4 +362,186 @@ public class RunHttpRequestProfileState implements RunProfileState {
 
         };
     }
+
+    /**
+     * 惰性生成请求信息, 每次取下一个请求时才执行它的前置脚本
+     */
+    private final class PreparingIterator implements Iterator<HttpRunRequestInfo> {
+        private final Iterator<HttpRequest> myRequests;
+        private final HttpResponseConsole myConsole;
+
+        private PreparingIterator(@NotNull Iterator<HttpRequest> requests, @NotNull HttpResponseConsole console) {
+            this.myRequests = requests;
+            this.myConsole = console;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.myRequests.hasNext();
+        }
+
+        @Override
+        public HttpRunRequestInfo next() {
+            return RunHttpRequestProfileState.this.prepareRequest(this.myRequests.next(), this.myConsole.getConsole(), null);
+        }
+    }
+
+    /**
+     * 并发或重复执行: 按声明顺序发出请求, 最多同时执行concurrency个.
+     * 带响应处理脚本的请求会修改变量, 在它完成之前不发出后面的请求.
+     * 重复执行时按次数或持续时间循环整个文件, 可以限制每秒请求数, 耗时记录在直方图中, 最后输出汇总.
+     * 所有状态只在单线程的调度器上修改, 不需要加锁
+     */
+    private final class ScheduledExecution {
+        private final Project myProject;
+        private final List<HttpRequest> myRequests;
+        private final HttpClientRequestProcessHandler myProcessHandler;
+        private final HttpResponseConsole myConsole;
+        private final int myConcurrency;
+        private final long myTotal;
+        // 压测模式下请求数被MAX_REPEAT_REQUESTS截断
+        private final boolean myCapped;
+        private final long myDurationNanos;
+        private final long myIntervalNanos;
+        private final @Nullable HttpLatencyHistogram myHistogram;
+        private final ExecutorService myScheduler = AppExecutorUtil.createBoundedApplicationPoolExecutor("HTTP Client Requests", 1);
+        private long myStartNanos;
+        private long myNext;
+        private int myRunning;
+        private int myRunningHandlers;
+        // 没有发出的请求, 以及前置脚本或签名出错(请求仍然发出)的请求
+        private int myErrors;
+        private boolean myWakeUpScheduled;
+        private boolean myFinished;
+
+        private ScheduledExecution(@NotNull Project project, @NotNull List<HttpRequest> requests, @NotNull HttpClientRequestProcessHandler processHandler, @NotNull HttpResponseConsole console, @NotNull HttpRequestRunOptions options) {
+            this.myProject = project;
+            this.myRequests = requests;
+            this.myProcessHandler = processHandler;
+            this.myConsole = console;
+            this.myConcurrency = options.getConcurrency();
+            long total = (long) requests.size() * options.getRepeatCount();
+            this.myCapped = options.isRepeat() && total > HttpRequestRunOptions.MAX_REPEAT_REQUESTS;
+            this.myTotal = this.myCapped ? HttpRequestRunOptions.MAX_REPEAT_REQUESTS : total;
+            this.myDurationNanos = options.getRepeatDurationSeconds() > 0 ? TimeUnit.SECONDS.toNanos(options.getRepeatDurationSeconds()) : Long.MAX_VALUE;
+            this.myIntervalNanos = options.getRepeatRate() > 0 ? TimeUnit.SECONDS.toNanos(1) / options.getRepeatRate() : 0L;
+            this.myHistogram = options.isRepeat() ? new HttpLatencyHistogram() : null;
+        }
+
+        private void start() {
+            this.myScheduler.execute(() -> {
+                this.myStartNanos = System.nanoTime();
+                this.dispatch();
+            });
+        }
+
+        private boolean isExhausted() {
+            return this.myNext >= this.myTotal || System.nanoTime() - this.myStartNanos >= this.myDurationNanos
+                    || this.myProcessHandler.isProcessTerminating() || this.myProcessHandler.isProcessTerminated();
+        }
+
+        private void dispatch() {
+            ProcessCanceledException canceled = null;
+            while (!this.isExhausted() && this.myRunning < this.myConcurrency && this.myRunningHandlers == 0) {
+                if (this.myIntervalNanos > 0) {
+                    // 限速: 第n个请求不早于start + n * interval发出
+                    long delay = this.myStartNanos + this.myNext * this.myIntervalNanos - System.nanoTime();
+                    if (delay > 0) {
+                        if (!this.myWakeUpScheduled) {
+                            this.myWakeUpScheduled = true;
+                            AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> this.myScheduler.execute(() -> {
+                                this.myWakeUpScheduled = false;
+                                this.dispatch();
+                            }), delay, TimeUnit.NANOSECONDS);
+                        }
+                        return;
+                    }
+                }
+
+                HttpRequest request = this.myRequests.get((int) (this.myNext++ % this.myRequests.size()));
+                boolean hasResponseHandler = request.getResponseHandler() != null;
+                this.myRunning++;
+                if (hasResponseHandler) {
+                    this.myRunningHandlers++;
+                }
+
+                int errors = this.myErrors;
+                try {
+                    HttpRunRequestInfo info = RunHttpRequestProfileState.this.prepareRequest(request, this.myConsole.getConsole(), () -> this.myErrors++);
+                    long requestStart = System.nanoTime();
+                    Runnable onRequestFinished = () -> {
+                        long elapsed = System.nanoTime() - requestStart;
+                        try {
+                            RunHttpRequestProfileState.this.onRequestExecuted(info, this.myConsole);
+                        } finally {
+                            this.myScheduler.execute(() -> this.onFinished(hasResponseHandler, elapsed));
+                        }
+                    };
+                    HttpClientExecutionController.create(this.myProject, info, this.myProcessHandler, this.myConsole, onRequestFinished, false, RunHttpRequestProfileState.this.mySettings, false).execute();
+                } catch (ExecutionException | RuntimeException e) {
+                    // 生成请求时的异常(例如长时间运行中请求被编辑导致PSI失效)也不能让调度中断, 否则运行永远不会结束
+                    this.myRunning--;
+                    if (hasResponseHandler) {
+                        this.myRunningHandlers--;
+                    }
+                    if (e instanceof ProcessCanceledException) {
+                        canceled = (ProcessCanceledException) e;
+                        this.myNext = this.myTotal;
+                        break;
+                    }
+                    if (e instanceof RuntimeException) {
+                        logger.warn("Failed to prepare request", e);
+                    }
+                    // 前置脚本出错后生成请求又失败时只计一次
+                    this.myErrors = errors + 1;
+                    if (this.myHistogram == null) {
+                        HttpRequestNotifications.showErrorBalloon(this.myProject, RestClientBundle.message("rest.client.request.execute.notification", new Object[0]), e.getMessage());
+                        // 和顺序执行一样, 出错后不再发出后面的请求
+                        this.myNext = this.myTotal;
+                    }
+                }
+            }
+            if (this.myRunning == 0 && !this.myFinished && this.isExhausted()) {
+                this.myFinished = true;
+                this.finish();
+            }
+            if (canceled != null) {
+                throw canceled;
+            }
+        }
+
+        private void onFinished(boolean hasResponseHandler, long elapsedNanos) {
+            this.myRunning--;
+            if (hasResponseHandler) {
+                this.myRunningHandlers--;
+            }
+            if (this.myHistogram != null) {
+                this.myHistogram.recordNanos(elapsedNanos);
+            }
+            this.dispatch();
+        }
+
+        private void finish() {
+            try {
+                if (this.myHistogram != null && this.myConsole.getConsole() instanceof ConsoleView) {
+                    ((ConsoleView) this.myConsole.getConsole()).print(this.formatSummary(this.myHistogram), ConsoleViewContentType.SYSTEM_OUTPUT);
+                }
+            } finally {
+                this.myProcessHandler.onRunFinished();
+            }
+        }
+
+        private @NotNull String formatSummary(@NotNull HttpLatencyHistogram histogram) {
+            double seconds = Math.max(1L, System.nanoTime() - this.myStartNanos) / 1e9;
+            // 执行控制器不返回响应状态, HTTP错误和连接失败也计入completed, 只能统计没有发出和前置脚本或签名出错的请求
+            String summary = String.format("%nRequests: %d completed, %d errors (not sent or pre-request script/signing failed) in %.1f s, %.1f req/s%nLatency (ms): p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                    histogram.getTotalCount(), this.myErrors, seconds, histogram.getTotalCount() / seconds,
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0, histogram.getMaxMicros() / 1000.0);
+            if (this.myCapped && this.myNext >= this.myTotal) {
+                summary += String.format("Stopped after %d requests: every response is kept in the console%n", this.myTotal);
+            }
+            return summary;
+        }
+    }
 }